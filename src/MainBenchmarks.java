@@ -0,0 +1,1042 @@
+import functions.*;
+import functions.basic.*;
+import functions.cache.*;
+import functions.meta.*;
+import functions.metrics.*;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class MainBenchmarks {
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long MEASURE_NANOS = 700_000_000L;
+    private static final int QUERIES_COUNT = 4096;
+    private static final double EPSILON = 1e-10;
+    private static final int[] SUITE_SIZES = {10, 1_000, 100_000, 10_000_000};
+    private static final int LINKED_LIST_MAX_SIZE = 1_000_000;
+    private static final int IO_MAX_SIZE = 1_000_000;
+
+    private static volatile double sink;
+
+    public static void main(String[] args) {
+        System.out.println("Бенчмарки табулированных функций");
+        System.out.println("Запуск: java MainBenchmarks [раздел ...], без аргументов выполняются все разделы\n");
+
+        runSection(args, "lookup", "Вычисление значения: бинарный поиск против линейного просмотра",
+                MainBenchmarks::benchmarkLookup);
+        runSection(args, "uniform", "Вычисление значения: равномерная сетка против произвольной",
+                MainBenchmarks::benchmarkUniformGrid);
+        runSection(args, "storage", "Хранение точек: FunctionPoint[] против double[] xValues/yValues",
+                MainBenchmarks::benchmarkStorage);
+        runSection(args, "batch", "Пакетное вычисление getFunctionValues на упорядоченной сетке",
+                MainBenchmarks::benchmarkBatchEvaluation);
+        runSection(args, "integration", "Интегрирование: одно вычисление на узел и компенсированное суммирование",
+                MainBenchmarks::benchmarkIntegration);
+        runSection(args, "parallel", "Параллельное интегрирование на ForkJoinPool",
+                MainBenchmarks::benchmarkParallelIntegration);
+        runSection(args, "parallel-tabulation", "Параллельная табуляция на ForkJoinPool",
+                MainBenchmarks::benchmarkParallelTabulation);
+
+        runSection(args, "cursor", "LinkedListTabulatedFunction: упорядоченный проход с курсором поиска",
+                MainBenchmarks::benchmarkLookupCursor);
+
+        runSection(args, "evaluation", "Набор: getFunctionValue для разных реализаций и размеров",
+                MainBenchmarks::suiteEvaluation);
+        runSection(args, "modification", "Набор: addPoint + deletePoint",
+                MainBenchmarks::suiteModification);
+        runSection(args, "clone", "Набор: clone + два setPointY + getFunctionValue",
+                MainBenchmarks::suiteClone);
+        runSection(args, "chains", "Набор: Functions.integrate над цепочками мета-функций",
+                MainBenchmarks::suiteIntegrationChains);
+        runSection(args, "cache", "CachedFunction: повторные вычисления дорогой функции",
+                MainBenchmarks::benchmarkCache);
+        runSection(args, "concurrent", "Общая таблица: читатели в многих потоках и фоновый писатель",
+                MainBenchmarks::benchmarkConcurrentReaders);
+        runSection(args, "tabulation", "Набор: TabulatedFunctions.tabulate",
+                MainBenchmarks::suiteTabulation);
+        runSection(args, "compression", "Сжатый двоичный формат: размер и скорость кодирования",
+                MainBenchmarks::benchmarkCompression);
+        runSection(args, "metrics", "Метрики: цена обёртки при выключенном и включённом сборе",
+                MainBenchmarks::benchmarkMetrics);
+        runSection(args, "io", "Набор: пути ввода-вывода TabulatedFunctions и сериализация",
+                MainBenchmarks::suiteInputOutput);
+    }
+
+    private static void runSection(String[] args, String name, String title, Runnable section) {
+        if (args.length > 0 && !Arrays.asList(args).contains(name)) {
+            return;
+        }
+        System.out.println("[" + name + "] " + title);
+        section.run();
+        System.out.println();
+    }
+
+    private interface Operation {
+        double run(int iteration);
+    }
+
+    private static class Measurement {
+        final double nanosPerOperation;
+        final double bytesPerOperation;
+        final long gcCount;
+        final long gcMillis;
+
+        Measurement(double nanosPerOperation, double bytesPerOperation, long gcCount, long gcMillis) {
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    // Возвращает среднее время одной операции в наносекундах
+    private static double measure(Operation operation) {
+        return profile(operation).nanosPerOperation;
+    }
+
+    // Время, выделенная память на операцию и работа сборщика мусора за время замера (аналог профилировщика gc в JMH)
+    private static Measurement profile(Operation operation) {
+        runFor(operation, WARMUP_NANOS);
+        return runFor(operation, MEASURE_NANOS);
+    }
+
+    private static Measurement runFor(Operation operation, long budgetNanos) {
+        long operations = 0;
+        double accumulator = 0;
+        int batch = 1;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            for (int i = 0; i < batch; i++) {
+                accumulator += operation.run((int) (operations + i));
+            }
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+            if (batch < 1 << 16) {
+                batch <<= 1;
+            }
+        } while (elapsed < budgetNanos);
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        sink = accumulator;
+        return new Measurement((double) elapsed / operations,
+                allocatedBefore < 0 ? Double.NaN : (double) allocated / operations,
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(bean.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    private static void printHeader() {
+        System.out.printf("%-34s %10s %14s %14s %6s %8s%n", "", "точек", "нс/оп", "байт/оп", "GC", "GC, мс");
+    }
+
+    private static void printRow(String name, long size, Measurement measurement) {
+        System.out.printf("%-34s %10d %14.1f %14.1f %6d %8d%n", name, size, measurement.nanosPerOperation,
+                measurement.bytesPerOperation, measurement.gcCount, measurement.gcMillis);
+    }
+
+    private static void printSkipped(String name, long size, String reason) {
+        System.out.printf("%-34s %10d   пропущено: %s%n", name, size, reason);
+    }
+
+    private static double[] randomQueries(double left, double right) {
+        Random random = new Random(42);
+        double[] queries = new double[QUERIES_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = left + random.nextDouble() * (right - left);
+        }
+        return queries;
+    }
+
+    private static void benchmarkLookup() {
+        int[] sizes = {10, 1_000, 100_000, 1_000_000};
+
+        System.out.printf("%12s %22s %22s %10s%n", "точек", "бинарный поиск, нс", "линейный поиск, нс", "ускорение");
+        for (int size : sizes) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = Math.sin(i * 0.001);
+            }
+
+            ArrayTabulatedFunction uniform = new ArrayTabulatedFunction(0, size, values);
+            FunctionPoint[] points = new FunctionPoint[size];
+            for (int i = 0; i < size; i++) {
+                points[i] = uniform.getPoint(i);
+            }
+            points[size / 2].setX(points[size / 2].getX() + 0.25);
+            ArrayTabulatedFunction function = new ArrayTabulatedFunction(points);
+            double[] queries = randomQueries(0, size);
+
+            double binary = measure(i -> function.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+            double linear = measure(i -> linearScanValue(points, queries[i & (QUERIES_COUNT - 1)]));
+
+            System.out.printf("%12d %22.1f %22.1f %9.1fx%n", size, binary, linear, linear / binary);
+        }
+    }
+
+    private static void benchmarkUniformGrid() {
+        int[] sizes = {10, 1_000, 100_000, 1_000_000};
+
+        System.out.printf("%12s %22s %22s %10s%n", "точек", "равномерная, нс", "произвольная, нс", "ускорение");
+        for (int size : sizes) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = Math.sin(i * 0.001);
+            }
+
+            ArrayTabulatedFunction uniform = new ArrayTabulatedFunction(0, size, values);
+            FunctionPoint[] points = new FunctionPoint[size];
+            for (int i = 0; i < size; i++) {
+                points[i] = uniform.getPoint(i);
+            }
+            points[size / 2].setX(points[size / 2].getX() + 0.25);
+            ArrayTabulatedFunction general = new ArrayTabulatedFunction(points);
+            double[] queries = randomQueries(0, size);
+
+            double uniformTime = measure(i -> uniform.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+            double generalTime = measure(i -> general.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+
+            System.out.printf("%12d %22.1f %22.1f %9.1fx%n", size, uniformTime, generalTime, generalTime / uniformTime);
+        }
+    }
+
+    private static void benchmarkStorage() {
+        int size = 1_000_000;
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Math.sin(i * 0.001);
+        }
+
+        long arrayBytes = retainedBytes(() -> new ArrayTabulatedFunction(0, size, values));
+        long doubleArrayBytes = retainedBytes(() -> new DoubleArrayTabulatedFunction(0, size, values));
+        System.out.printf("Память на %d точек: ArrayTabulatedFunction %.1f МБ, DoubleArrayTabulatedFunction %.1f МБ%n",
+                size, arrayBytes / 1e6, doubleArrayBytes / 1e6);
+
+        TabulatedFunction array = new ArrayTabulatedFunction(0, size, values);
+        TabulatedFunction doubleArray = new DoubleArrayTabulatedFunction(0, size, values);
+        double[] queries = randomQueries(0, size);
+
+        System.out.printf("%30s %18s %18s%n", "", "Array, нс", "DoubleArray, нс");
+        System.out.printf("%30s %18.1f %18.1f%n", "getFunctionValue",
+                measure(i -> array.getFunctionValue(queries[i & (QUERIES_COUNT - 1)])),
+                measure(i -> doubleArray.getFunctionValue(queries[i & (QUERIES_COUNT - 1)])));
+        System.out.printf("%30s %18.1f %18.1f%n", "обход итератором (на точку)",
+                measure(i -> sumOfPoints(array)) / size,
+                measure(i -> sumOfPoints(doubleArray)) / size);
+    }
+
+    private static void benchmarkBatchEvaluation() {
+        int size = 10_000;
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Math.sin(i * 0.001);
+        }
+
+        double[] grid = new double[size];
+        for (int i = 0; i < size; i++) {
+            grid[i] = (size - 1) * (i + 0.5) / size;
+        }
+        double[] out = new double[size];
+
+        Function[] functions = {
+                new ArrayTabulatedFunction(0, size - 1, values),
+                new DoubleArrayTabulatedFunction(0, size - 1, values),
+                new LinkedListTabulatedFunction(0, size - 1, values),
+                Functions.sum(Functions.power(new Sin(), 2),
+                        Functions.scale(new Exp(), 0.001, 0.5))
+        };
+
+        System.out.printf("%30s %18s %18s %10s%n", "", "поточечно, мкс", "пакетно, мкс", "ускорение");
+        for (Function function : functions) {
+            double single = measure(i -> {
+                double sum = 0;
+                for (double x : grid) {
+                    sum += function.getFunctionValue(x);
+                }
+                return sum;
+            });
+            double batch = measure(i -> {
+                function.getFunctionValues(grid, out);
+                return out[i % size];
+            });
+
+            System.out.printf("%30s %18.1f %18.1f %9.1fx%n", function.getClass().getSimpleName(),
+                    single / 1000, batch / 1000, single / batch);
+        }
+    }
+
+    private static void benchmarkIntegration() {
+        Function chain = Functions.composition(
+                Functions.sum(new Exp(), Functions.scale(new Exp(), 0.5, 1)),
+                new Log(Math.E));
+        CountingFunction counting = new CountingFunction(chain);
+        double step = 1e-4;
+
+        counting.reset();
+        Functions.integrate(counting, 0, 1, step);
+        long currentCalls = counting.getCallsCount();
+        counting.reset();
+        integrateTwoEvaluations(counting, 0, 1, step);
+        long previousCalls = counting.getCallsCount();
+        System.out.printf("Вычислений функции при шаге %.0e: было %d, стало %d%n", step, previousCalls, currentCalls);
+
+        double current = measure(i -> Functions.integrate(chain, 0, 1, step));
+        double previous = measure(i -> integrateTwoEvaluations(chain, 0, 1, step));
+        System.out.printf("Время интегрирования ln(e^x + e^(x/2)) на [0, 1]: было %.1f мкс, стало %.1f мкс (%.1fx)%n",
+                previous / 1000, current / 1000, previous / current);
+
+        System.out.println("Погрешность интегрирования exp на [0, 1]:");
+        System.out.printf("%12s %22s %22s%n", "шаг", "было", "стало");
+        Exp exp = new Exp();
+        for (double h = 1e-5; h >= 1e-8; h /= 10) {
+            System.out.printf("%12.0e %22.3e %22.3e%n", h,
+                    Math.abs(integrateTwoEvaluations(exp, 0, 1, h) - (Math.E - 1)),
+                    Math.abs(Functions.integrate(exp, 0, 1, h) - (Math.E - 1)));
+        }
+    }
+
+    private static void benchmarkParallelIntegration() {
+        Function chain = Functions.composition(
+                Functions.sum(new Exp(), Functions.scale(new Exp(), 0.5, 1)),
+                new Log(Math.E));
+        double step = 1e-6;
+
+        double sequential = measure(i -> Functions.integrate(chain, 0, 10, step));
+        System.out.printf("%10s %18s %14s %26s%n", "потоков", "время, мс", "ускорение", "результат");
+        System.out.printf("%10s %18.1f %14s %26.17f%n", "integrate", sequential / 1e6, "",
+                Functions.integrate(chain, 0, 10, step));
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double parallel = measure(i -> Functions.integrateParallel(chain, 0, 10, step, pool));
+            System.out.printf("%10d %18.1f %13.1fx %26.17f%n", threads, parallel / 1e6, sequential / parallel,
+                    Functions.integrateParallel(chain, 0, 10, step, pool));
+            pool.shutdown();
+        }
+    }
+
+    private static void benchmarkParallelTabulation() {
+        Function chain = Functions.composition(
+                Functions.sum(new Exp(), Functions.scale(new Exp(), 0.5, 1)),
+                new Log(Math.E));
+        int pointsCount = 10_000_000;
+        TabulatedFunctions.setTabulatedFunctionFactory(new DoubleArrayTabulatedFunction.DoubleArrayTabulatedFunctionFactory());
+
+        TabulatedFunction serial = TabulatedFunctions.tabulate(chain, 0, 10, pointsCount);
+        double sequential = measure(i -> TabulatedFunctions.tabulate(chain, 0, 10, pointsCount).getPointsCount());
+        System.out.printf("%10s %18s %14s %14s%n", "потоков", "время, мс", "ускорение", "совпадает");
+        System.out.printf("%10s %18.1f %14s %14s%n", "tabulate", sequential / 1e6, "", "");
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double parallel = measure(i -> TabulatedFunctions.tabulateParallel(chain, 0, 10, pointsCount, pool).getPointsCount());
+            System.out.printf("%10d %18.1f %13.1fx %14s%n", threads, parallel / 1e6, sequential / parallel,
+                    serial.equals(TabulatedFunctions.tabulateParallel(chain, 0, 10, pointsCount, pool)) ? "да" : "нет");
+            pool.shutdown();
+        }
+
+        TabulatedFunctions.setTabulatedFunctionFactory(new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory());
+    }
+
+    private static void benchmarkCache() {
+        Function chain = new Exp();
+        for (int level = 0; level < 16; level++) {
+            chain = Functions.composition(Functions.sum(chain, new Exp()), new Log(Math.E));
+        }
+        Function expensive = chain;
+
+        // Много заданий вычисляют одну и ту же сетку из 1000 точек
+        double[] grid = new double[1000];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = 1 + i / 1000.0;
+        }
+        System.out.printf("%-34s %16s %14s%n", "сетка 1000 точек, глубина 16", "нс/проход", "попадания");
+        System.out.printf("%-34s %16.0f %14s%n", "без кэша", measure(i -> evaluateGrid(expensive, grid)), "");
+        for (EvictionPolicy policy : EvictionPolicy.values()) {
+            CachedFunction cached = Functions.cache(expensive, 4096, policy);
+            double nanos = measure(i -> evaluateGrid(cached, grid));
+            System.out.printf("%-34s %16.0f %13.1f%%%n", policy, nanos, 100 * cached.getHitRate());
+        }
+
+        // Популярные аргументы по закону Ципфа вперемешку с однократным сканированием
+        System.out.printf("%n%-34s %16s %14s%n", "Ципф 10^4 ключей + скан, кэш 1000", "нс/вызов", "попадания");
+        for (EvictionPolicy policy : EvictionPolicy.values()) {
+            CachedFunction cached = Functions.cache(expensive, 1000, policy);
+            Random random = new Random(20);
+            double nanos = measure(i -> cached.getFunctionValue(i % 3 == 0
+                    ? 2 + i * 1e-9
+                    : 1 + Math.floor(Math.pow(10_000, random.nextDouble())) * 1e-4));
+            System.out.printf("%-34s %16.1f %13.1f%%%n", policy, nanos, 100 * cached.getHitRate());
+        }
+
+        // Допуск мельче шага double около аргумента: ключом служит сам аргумент, а не переполненный узел сетки
+        System.out.printf("%n%-34s %16s %14s%n", "Sin с крошечным допуском", "нс/вызов", "как без кэша");
+        for (double tolerance : new double[]{Double.MIN_VALUE, 1e-300}) {
+            CachedFunction cached = new CachedFunction(new Sin(), 1000, EvictionPolicy.LRU, tolerance);
+            boolean exact = cached.getFunctionValue(1.0) == Math.sin(1.0) && cached.getFunctionValue(1e10) == Math.sin(1e10);
+            double nanos = measure(i -> cached.getFunctionValue(1 + (i & 511)));
+            System.out.printf("%-34s %16.1f %14s%n", "допуск " + tolerance, nanos, exact ? "да" : "нет");
+        }
+    }
+
+    private static void benchmarkMetrics() {
+        double[] values = sineValues(100_000);
+        TabulatedFunction table = new DoubleArrayTabulatedFunction(0, values.length, values);
+        double[] queries = randomQueries(0, values.length);
+        Function sine = new Sin();
+        InstrumentedTabulatedFunction instrumentedTable = Metrics.instrument("бенчмарк таблица", table);
+        InstrumentedFunction instrumentedSine = Metrics.instrument("бенчмарк sin", sine);
+        Function sineChain = Functions.composition(Functions.sum(new Sin(), new Cos()), new Exp());
+        Function instrumentedChain = Metrics.instrumentTree("бенчмарк цепочка", sineChain);
+
+        System.out.printf("%-34s %14s %14s %14s%n", "нс/вызов", "без обёртки", "сбор выключен", "сбор включён");
+        metricsRow("таблица 10^5 точек", table, instrumentedTable, queries);
+        metricsRow("Sin", sine, instrumentedSine, queries);
+        metricsRow("exp(sin + cos), все узлы", sineChain, instrumentedChain, queries);
+
+        boolean wasEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(false);
+        double plain = measure(i -> Functions.integrate(sine, 0, Math.PI, 1e-3));
+        Metrics.setEnabled(true);
+        double timed = measure(i -> Functions.integrate(sine, 0, Math.PI, 1e-3));
+        Metrics.setEnabled(wasEnabled);
+        System.out.printf("%-34s %14.1f %14s %14.1f%n", "Functions.integrate, 3142 шага", plain, "", timed);
+        System.out.println("Поиск интервала учитывается только при -Dfunctions.metrics.probes=true: "
+                + (LookupProbes.ENABLED ? "включено" : "выключено"));
+    }
+
+    private static void metricsRow(String name, Function function, Function instrumented, double[] queries) {
+        boolean wasEnabled = Metrics.isEnabled();
+        double plain = measure(i -> function.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+        Metrics.setEnabled(false);
+        double disabled = measure(i -> instrumented.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+        Metrics.setEnabled(true);
+        double enabled = measure(i -> instrumented.getFunctionValue(queries[i & (QUERIES_COUNT - 1)]));
+        Metrics.setEnabled(wasEnabled);
+        System.out.printf("%-34s %14.1f %14.1f %14.1f%n", name, plain, disabled, enabled);
+    }
+
+    private static void benchmarkConcurrentReaders() {
+        int size = 10_000;
+        double[] xValues = new double[size];
+        for (int i = 0; i < size; i++) {
+            xValues[i] = i + 0.25 * Math.sin(i);
+        }
+        double[] yValues = sineValues(size);
+
+        DoubleArrayTabulatedFunction plain = new DoubleArrayTabulatedFunction(xValues, yValues);
+        Function synchronizedReader = new Function() {
+            public synchronized double getLeftDomainBorder() {
+                return plain.getLeftDomainBorder();
+            }
+
+            public synchronized double getRightDomainBorder() {
+                return plain.getRightDomainBorder();
+            }
+
+            public synchronized double getFunctionValue(double x) {
+                return plain.getFunctionValue(x);
+            }
+        };
+        ConcurrentTabulatedFunction concurrent = new ConcurrentTabulatedFunction(xValues, yValues);
+
+        // Писатель правит свою таблицу и публикует её снимок, читатели берут последний опубликованный
+        DoubleArrayTabulatedFunction master = new DoubleArrayTabulatedFunction(xValues, yValues);
+        AtomicReference<FrozenTabulatedFunction> published = new AtomicReference<>(master.freeze());
+        Function snapshotReader = new Function() {
+            public double getLeftDomainBorder() {
+                return published.get().getLeftDomainBorder();
+            }
+
+            public double getRightDomainBorder() {
+                return published.get().getRightDomainBorder();
+            }
+
+            public double getFunctionValue(double x) {
+                return published.get().getFunctionValue(x);
+            }
+        };
+
+        System.out.printf("%10s %18s %18s %18s %12s%n", "читателей", "synchronized", "StampedLock", "снимки freeze", "записей");
+        for (int readers = 1; readers <= 64; readers *= 2) {
+            int[] writes = new int[1];
+            double locked = readerThroughput(synchronizedReader, readers, () -> {
+                synchronized (synchronizedReader) {
+                    plain.setPointY(writes[0] % size, writes[0]++);
+                }
+            });
+            double optimistic = readerThroughput(concurrent, readers, () -> {
+                concurrent.setPointY(writes[0] % size, writes[0]++);
+            });
+            double frozen = readerThroughput(snapshotReader, readers, () -> {
+                master.setPointY(writes[0] % size, writes[0]++);
+                published.set(master.freeze());
+            });
+            System.out.printf("%10d %18.1f %18.1f %18.1f %12d%n", readers, locked, optimistic, frozen, writes[0]);
+        }
+    }
+
+    // Пропускная способность читателей getFunctionValue в вызовах за микросекунду, пока фоновый писатель раз в 50 мкс обновляет таблицу
+    private static double readerThroughput(Function function, int readers, Runnable writer) {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder calls = new LongAdder();
+        double left = function.getLeftDomainBorder();
+        double width = function.getRightDomainBorder() - left;
+
+        Thread[] threads = new Thread[readers + 1];
+        for (int t = 0; t < readers; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                double sum = 0;
+                while (running.get()) {
+                    for (int i = 0; i < 1024; i++) {
+                        sum += function.getFunctionValue(left + width * random.nextDouble());
+                    }
+                    calls.add(1024);
+                }
+                sink = sum;
+            });
+        }
+        threads[readers] = new Thread(() -> {
+            while (running.get()) {
+                writer.run();
+                LockSupport.parkNanos(50_000);
+            }
+        });
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        LockSupport.parkNanos(WARMUP_NANOS);
+        calls.reset();
+        long start = System.nanoTime();
+        LockSupport.parkNanos(MEASURE_NANOS);
+        long measured = calls.sum();
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        return measured * 1e3 / elapsed;
+    }
+
+    private static double evaluateGrid(Function function, double[] grid) {
+        double sum = 0;
+        for (double x : grid) {
+            sum += function.getFunctionValue(x);
+        }
+        return sum;
+    }
+
+    // Прежняя реализация Functions.integrate: два вычисления функции на каждом шаге и обычное суммирование
+    private static double integrateTwoEvaluations(Function function, double left, double right, double step) {
+        double integral = 0.0;
+        double x = left;
+
+        double xNext = Math.min(x + step, right);
+        double y1 = function.getFunctionValue(x);
+        double y2 = function.getFunctionValue(xNext);
+        integral += (y1 + y2) * (xNext - x) / 2;
+
+        x = xNext;
+
+        while (x < right) {
+            xNext = Math.min(x + step, right);
+            y1 = function.getFunctionValue(x);
+            y2 = function.getFunctionValue(xNext);
+            integral += (y1 + y2) * (xNext - x) / 2;
+            x = xNext;
+        }
+
+        return integral;
+    }
+
+    private static class CountingFunction implements Function {
+        private final Function function;
+        private long callsCount;
+
+        CountingFunction(Function function) {
+            this.function = function;
+        }
+
+        public double getLeftDomainBorder() {
+            return function.getLeftDomainBorder();
+        }
+
+        public double getRightDomainBorder() {
+            return function.getRightDomainBorder();
+        }
+
+        public double getFunctionValue(double x) {
+            callsCount++;
+            return function.getFunctionValue(x);
+        }
+
+        long getCallsCount() {
+            return callsCount;
+        }
+
+        void reset() {
+            callsCount = 0;
+        }
+    }
+
+    private static void benchmarkLookupCursor() {
+        printHeader();
+        for (int size : new int[]{1_000, 100_000, 1_000_000}) {
+            LinkedListTabulatedFunction function = new LinkedListTabulatedFunction(0, size - 1, sineValues(size));
+            double step = 0.37;
+            int stepsCount = (int) ((size - 1) / step);
+
+            printRow("упорядоченный проход", size, profile(i -> function.getFunctionValue((i % stepsCount) * step)));
+            printRow("integrate, шаг 0.37", size, profile(i -> Functions.integrate(function, 0, size - 1, step) / stepsCount));
+        }
+    }
+
+    private static String[] implementationNames() {
+        return new String[]{"ArrayTabulatedFunction", "DoubleArrayTabulatedFunction", "LinkedListTabulatedFunction",
+                "SkipListTabulatedFunction"};
+    }
+
+    private static TabulatedFunctionFactory[] implementationFactories() {
+        return new TabulatedFunctionFactory[]{
+                new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory(),
+                new DoubleArrayTabulatedFunction.DoubleArrayTabulatedFunctionFactory(),
+                new LinkedListTabulatedFunction.LinkedListTabulatedFunctionFactory(),
+                new SkipListTabulatedFunction.SkipListTabulatedFunctionFactory()
+        };
+    }
+
+    private static boolean tooLarge(TabulatedFunctionFactory factory, int size) {
+        return (factory instanceof LinkedListTabulatedFunction.LinkedListTabulatedFunctionFactory ||
+                factory instanceof SkipListTabulatedFunction.SkipListTabulatedFunctionFactory) &&
+                size > LINKED_LIST_MAX_SIZE;
+    }
+
+    private static double[] sineValues(int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Math.sin(i * 0.001);
+        }
+        return values;
+    }
+
+    private static void suiteEvaluation() {
+        String[] names = implementationNames();
+        TabulatedFunctionFactory[] factories = implementationFactories();
+
+        printHeader();
+        for (int k = 0; k < factories.length; k++) {
+            for (int size : SUITE_SIZES) {
+                if (tooLarge(factories[k], size)) {
+                    printSkipped(names[k], size, "не помещается в кучу по умолчанию");
+                    continue;
+                }
+
+                TabulatedFunction function = factories[k].createTabulatedFunction(0, size - 1, sineValues(size));
+                double[] queries = randomQueries(0, size - 1);
+                printRow(names[k], size, profile(i -> function.getFunctionValue(queries[i & (QUERIES_COUNT - 1)])));
+            }
+        }
+    }
+
+    private static void suiteModification() {
+        String[] names = implementationNames();
+        TabulatedFunctionFactory[] factories = implementationFactories();
+
+        printHeader();
+        for (int k = 0; k < factories.length; k++) {
+            for (int size : SUITE_SIZES) {
+                if (tooLarge(factories[k], size)) {
+                    printSkipped(names[k], size, "не помещается в кучу по умолчанию");
+                    continue;
+                }
+
+                TabulatedFunction function = factories[k].createTabulatedFunction(0, size - 1, sineValues(size));
+                Random random = new Random(42);
+                int[] intervals = new int[QUERIES_COUNT];
+                for (int i = 0; i < intervals.length; i++) {
+                    intervals[i] = random.nextInt(size - 1);
+                }
+
+                // Точка добавляется в середину отрезка сетки и сразу удаляется, размер таблицы не меняется
+                printRow(names[k], size, profile(i -> {
+                    int interval = intervals[i & (QUERIES_COUNT - 1)];
+                    try {
+                        function.addPoint(new FunctionPoint(interval + 0.5, 0));
+                    } catch (InappropriateFunctionPointException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    function.deletePoint(interval + 1);
+                    return interval;
+                }));
+            }
+        }
+    }
+
+    private static void suiteClone() {
+        String[] names = implementationNames();
+        TabulatedFunctionFactory[] factories = implementationFactories();
+
+        printHeader();
+        for (int k = 0; k < factories.length; k++) {
+            for (int size : SUITE_SIZES) {
+                if (tooLarge(factories[k], size)) {
+                    printSkipped(names[k], size, "не помещается в кучу по умолчанию");
+                    continue;
+                }
+
+                TabulatedFunction shared = factories[k].createTabulatedFunction(0, size - 1, sineValues(size));
+
+                // Обработчик запроса берёт копию общей таблицы, правит пару значений и вычисляет
+                printRow(names[k], size, profile(i -> {
+                    TabulatedFunction copy = (TabulatedFunction) shared.clone();
+                    copy.setPointY(0, i);
+                    copy.setPointY(size - 1, -i);
+                    return copy.getFunctionValue(0.5);
+                }));
+                printRow("  только clone", size, profile(i -> ((TabulatedFunction) shared.clone()).getPointsCount()));
+            }
+        }
+    }
+
+    private static void suiteIntegrationChains() {
+        double step = 1e-4;
+        int stepsCount = (int) Math.round(1 / step);
+
+        printHeader();
+        for (int depth : new int[]{1, 4, 16}) {
+            Function chain = new Exp();
+            for (int level = 0; level < depth; level++) {
+                chain = Functions.composition(Functions.sum(chain, new Exp()), new Log(Math.E));
+            }
+
+            Function function = chain;
+            printRow("ln(f + e^x), глубина " + depth, stepsCount,
+                    profile(i -> Functions.integrate(function, 1, 2, step)));
+
+            Function compiled = Functions.compile(chain);
+            printRow("  скомпилировано", stepsCount,
+                    profile(i -> Functions.integrate(compiled, 1, 2, step)));
+        }
+
+        // Цепочка из 16 сдвигов, 16 растяжений и квадрата: через конструкторы мета-классов
+        // (как до упрощения в Functions) и через построители, которые сливают её в три узла
+        Function wrapped = new Sin();
+        Function simplified = new Sin();
+        for (int level = 0; level < 16; level++) {
+            wrapped = new Shift(wrapped, 0.01, 0.01);
+            simplified = Functions.shift(simplified, 0.01, 0.01);
+        }
+        for (int level = 0; level < 16; level++) {
+            wrapped = new Scale(wrapped, 1.01, 0.99);
+            simplified = Functions.scale(simplified, 1.01, 0.99);
+        }
+        Function wrappedChain = new Power(wrapped, 2);
+        Function simplifiedChain = Functions.power(simplified, 2);
+        printRow("16 shift + 16 scale + ^2", stepsCount,
+                profile(i -> Functions.integrate(wrappedChain, 1, 2, step)));
+        printRow("  упрощено построителями", stepsCount,
+                profile(i -> Functions.integrate(simplifiedChain, 1, 2, step)));
+        Function square = new Sin();
+        printRow("sin * sin", stepsCount,
+                profile(i -> Functions.integrate(new Mult(square, square), 1, 2, step)));
+        printRow("  упрощено до sin^2", stepsCount,
+                profile(i -> Functions.integrate(Functions.mult(square, square), 1, 2, step)));
+    }
+
+    private static void suiteTabulation() {
+        String[] names = implementationNames();
+        TabulatedFunctionFactory[] factories = implementationFactories();
+        Function sin = new Sin();
+
+        printHeader();
+        for (int k = 0; k < factories.length; k++) {
+            TabulatedFunctions.setTabulatedFunctionFactory(factories[k]);
+            for (int size : SUITE_SIZES) {
+                if (tooLarge(factories[k], size)) {
+                    printSkipped(names[k], size, "не помещается в кучу по умолчанию");
+                    continue;
+                }
+
+                printRow(names[k], size, profile(i -> TabulatedFunctions.tabulate(sin, 0, 1, size).getPointsCount()));
+            }
+        }
+        TabulatedFunctions.setTabulatedFunctionFactory(new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory());
+    }
+
+    private static void suiteInputOutput() {
+        printHeader();
+        for (int size : SUITE_SIZES) {
+            suiteBinaryFile(size);
+            if (size > IO_MAX_SIZE) {
+                printSkipped("потоки в памяти", size, "копии потоков не помещаются в кучу по умолчанию");
+                continue;
+            }
+
+            TabulatedFunction function = new ArrayTabulatedFunction(0, size - 1, sineValues(size));
+
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            TabulatedFunctions.outputTabulatedFunction(function, binary);
+            byte[] binaryData = binary.toByteArray();
+
+            StringWriter text = new StringWriter();
+            TabulatedFunctions.writeTabulatedFunction(function, text);
+            String textData = text.toString();
+
+            StringWriter csv = new StringWriter();
+            TabulatedFunctions.writeTabulatedFunctionCsv(function, csv);
+            String csvData = csv.toString();
+
+            byte[] serializedData = serialize(function);
+
+            printRow("outputTabulatedFunction", size, profile(i -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(binaryData.length);
+                TabulatedFunctions.outputTabulatedFunction(function, out);
+                return out.size();
+            }));
+            printRow("inputTabulatedFunction", size, profile(i ->
+                    TabulatedFunctions.inputTabulatedFunction(new ByteArrayInputStream(binaryData)).getPointsCount()));
+            Path mappedFile = writeTemporaryFile(binaryData);
+            TabulatedFunction mapped = TabulatedFunctions.mapTabulatedFunction(mappedFile);
+            double[] queries = randomQueries(0, size - 1);
+            double[] results = new double[QUERIES_COUNT];
+            printRow("mapped getFunctionValue", size, profile(i -> mapped.getFunctionValue(queries[i % QUERIES_COUNT])));
+            printRow("mapped getFunctionValues, 4096 x", size, profile(i -> {
+                mapped.getFunctionValues(queries, results);
+                return results[i % QUERIES_COUNT];
+            }));
+            printRow("writeTabulatedFunction", size, profile(i -> {
+                StringWriter out = new StringWriter(textData.length());
+                TabulatedFunctions.writeTabulatedFunction(function, out);
+                return out.getBuffer().length();
+            }));
+            printRow("readTabulatedFunction", size, profile(i ->
+                    TabulatedFunctions.readTabulatedFunction(new StringReader(textData)).getPointsCount()));
+            printRow("writeTabulatedFunctionCsv", size, profile(i -> {
+                StringWriter out = new StringWriter(csvData.length());
+                TabulatedFunctions.writeTabulatedFunctionCsv(function, out);
+                return out.getBuffer().length();
+            }));
+            printRow("readTabulatedFunctionCsv", size, profile(i ->
+                    TabulatedFunctions.readTabulatedFunctionCsv(new StringReader(csvData)).getPointsCount()));
+            printRow("ObjectOutputStream.writeObject", size, profile(i -> serialize(function).length));
+            printRow("ObjectInputStream.readObject", size, profile(i -> deserialize(serializedData).getPointsCount()));
+        }
+    }
+
+    private static void benchmarkCompression() {
+        int size = 1_000_000;
+        double[] xValues = new double[size];
+        for (int i = 0; i < size; i++) {
+            xValues[i] = -5 + 10.0 * i / (size - 1);
+        }
+
+        Random random = new Random(24);
+        double[] sine = new double[size];
+        double[] readings = new double[size];
+        double[] steps = new double[size];
+        double[] counts = new double[size];
+        double[] noise = new double[size];
+        double level = 20;
+        for (int i = 0; i < size; i++) {
+            sine[i] = Math.sin(xValues[i]);
+            level += random.nextGaussian() * 0.05;
+            readings[i] = Math.round(level * 100) / 100.0;
+            steps[i] = Math.floor(i / 10_000.0) * 0.5;
+            counts[i] = random.nextInt(1000);
+            noise[i] = random.nextDouble();
+        }
+
+        String[] names = {"sin, равномерная сетка", "показания с шагом 0.01", "ступенчатая", "целые 0..999", "случайный шум"};
+        double[][] values = {sine, readings, steps, counts, noise};
+
+        System.out.printf("%-24s %10s %12s %12s %9s %14s %14s%n", "10^6 точек", "формат", "байт", "байт/точку", "сжатие", "запись, МБ/с", "чтение, МБ/с");
+        for (int k = 0; k < values.length; k++) {
+            TabulatedFunction function = new DoubleArrayTabulatedFunction(xValues, values[k]);
+
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            TabulatedFunctions.outputTabulatedFunction(function, binary);
+            byte[] binaryData = binary.toByteArray();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            TabulatedFunctions.outputTabulatedFunctionCompressed(function, compressed);
+            byte[] compressedData = compressed.toByteArray();
+
+            if (!function.equals(TabulatedFunctions.inputTabulatedFunction(new ByteArrayInputStream(compressedData)))) {
+                throw new IllegalStateException("Сжатые данные раскодированы неверно: " + names[k]);
+            }
+
+            // Скорость считается по исходному объёму 16 байт на точку
+            double rawMegabytes = 16.0 * size / 1e6;
+            double binaryWrite = measure(i -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(binaryData.length);
+                TabulatedFunctions.outputTabulatedFunction(function, out);
+                return out.size();
+            });
+            double binaryRead = measure(i -> TabulatedFunctions.inputTabulatedFunction(new ByteArrayInputStream(binaryData)).getPointsCount());
+            double compressedWrite = measure(i -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(compressedData.length);
+                TabulatedFunctions.outputTabulatedFunctionCompressed(function, out);
+                return out.size();
+            });
+            double compressedRead = measure(i -> TabulatedFunctions.inputTabulatedFunction(new ByteArrayInputStream(compressedData)).getPointsCount());
+
+            System.out.printf("%-24s %10s %12d %12.2f %9s %14.0f %14.0f%n", names[k], "обычный", binaryData.length,
+                    (double) binaryData.length / size, "", rawMegabytes / (binaryWrite / 1e9), rawMegabytes / (binaryRead / 1e9));
+            System.out.printf("%-24s %10s %12d %12.2f %8.1fx %14.0f %14.0f%n", "", "Gorilla", compressedData.length,
+                    (double) compressedData.length / size, (double) binaryData.length / compressedData.length,
+                    rawMegabytes / (compressedWrite / 1e9), rawMegabytes / (compressedRead / 1e9));
+        }
+    }
+
+    // Двоичный формат через файл: кодек работает с FileChannel напрямую, копия целиком в памяти не нужна
+    private static void suiteBinaryFile(int size) {
+        TabulatedFunction function = new DoubleArrayTabulatedFunction(0, size - 1, sineValues(size));
+        Path file = writeTemporaryFile(new byte[0]);
+
+        printRow("outputTabulatedFunction, файл", size, profile(i -> {
+            try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+                TabulatedFunctions.outputTabulatedFunction(function, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return i;
+        }));
+
+        TabulatedFunctions.setTabulatedFunctionFactory(new DoubleArrayTabulatedFunction.DoubleArrayTabulatedFunctionFactory());
+        try {
+            printRow("inputTabulatedFunction, файл", size, profile(i -> {
+                try (FileInputStream in = new FileInputStream(file.toFile())) {
+                    return TabulatedFunctions.inputTabulatedFunction(in).getPointsCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } finally {
+            TabulatedFunctions.setTabulatedFunctionFactory(new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory());
+        }
+    }
+
+    private static Path writeTemporaryFile(byte[] data) {
+        try {
+            Path file = Files.createTempFile("tabulated", ".bin");
+            file.toFile().deleteOnExit();
+            return Files.write(file, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] serialize(TabulatedFunction function) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(function);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TabulatedFunction deserialize(byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (TabulatedFunction) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double sumOfPoints(TabulatedFunction function) {
+        double sum = 0;
+        for (FunctionPoint point : function) {
+            sum += point.getY();
+        }
+        return sum;
+    }
+
+    private interface Allocation {
+        Object create();
+    }
+
+    private static long retainedBytes(Allocation allocation) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object retained = allocation.create();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        sink = retained.hashCode();
+        return after - before;
+    }
+
+    // Прежний алгоритм ArrayTabulatedFunction.getFunctionValue с двумя линейными проходами
+    private static double linearScanValue(FunctionPoint[] points, double x) {
+        if (x < points[0].getX() - EPSILON || x > points[points.length - 1].getX() + EPSILON) {
+            return Double.NaN;
+        }
+
+        for (FunctionPoint point : points) {
+            if (Math.abs(point.getX() - x) < EPSILON) {
+                return point.getY();
+            }
+        }
+
+        for (int i = 0; i < points.length - 1; i++) {
+            double x1 = points[i].getX();
+            double x2 = points[i + 1].getX();
+
+            if (x >= x1 - EPSILON && x <= x2 + EPSILON) {
+                double y1 = points[i].getY();
+                double y2 = points[i + 1].getY();
+                return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+            }
+        }
+
+        return Double.NaN;
+    }
+}
@@ -1,8 +1,13 @@
 import functions.Functions;
+import functions.IntegrationResult;
 import functions.basic.Exp;
 import functions.basic.Log;
 import functions.threads.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class MainThreads {
     public static void main(String[] args) {
         System.out.println("Потоки и интегрирование\n");
@@ -18,6 +23,12 @@ public class MainThreads {
 
         System.out.println("\n\nУсовершенствованная многопоточная версия");
         complicatedThreads();
+
+        System.out.println("\n\nКонвейер с ограниченной очередью");
+        pipelineThreads();
+
+        System.out.println("\n\nСервис интегрирования на виртуальных потоках");
+        serviceThreads();
     }
 
     private static void testIntegration() {
@@ -45,6 +56,12 @@ public class MainThreads {
         } while (diff > 1e-7 && step > 1e-12);
 
         System.out.printf("\nДостигнута точность 10^-7 при шаге = %.10f\n", step * 2);
+
+        System.out.println("\nАдаптивный метод Симпсона с допуском 10^-7:");
+        IntegrationResult adaptive = Functions.integrateAdaptive(exp, left, right, 1e-7);
+        System.out.printf("Результат = %.10f, разница = %.10f, оценка погрешности = %.10f, вычислений функции = %d\n",
+                adaptive.getValue(), Math.abs(adaptive.getValue() - theoretical),
+                adaptive.getErrorEstimate(), adaptive.getEvaluationsCount());
     }
 
     public static void nonThread() {
@@ -160,4 +177,47 @@ public class MainThreads {
 
         System.out.println("Усовершенствованная многопоточная версия завершена");
     }
+
+    public static void pipelineThreads() {
+        int integratorsCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        System.out.println("Запуск конвейера: 2 генератора, " + integratorsCount + " интеграторов, очередь на 16 заданий");
+
+        IntegrationPipeline pipeline = new IntegrationPipeline(2, integratorsCount, 16, 100, true);
+        try {
+            long completed = pipeline.run();
+            System.out.println("Обработано заданий: " + completed + ", из них с ошибкой: " + pipeline.getFailedCount());
+        } catch (InterruptedException e) {
+            System.out.println("Основной поток прерван");
+        }
+
+        System.out.println("Конвейер завершен");
+    }
+
+    public static void serviceThreads() {
+        int jobsCount = 10_000;
+        System.out.println("Отправка " + jobsCount + " заданий в IntegrationService");
+
+        List<CompletableFuture<Double>> results = new ArrayList<>(jobsCount);
+        long start = System.nanoTime();
+
+        try (IntegrationService service = new IntegrationService()) {
+            for (int i = 0; i < jobsCount; i++) {
+                double base = 1 + Math.random() * 9;
+                double left = Math.random() * 100;
+                double right = 100 + Math.random() * 100;
+                double step = 0.01 + Math.random();
+                results.add(service.submit(new Log(base), left, right, step));
+            }
+
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        double sum = 0;
+        for (CompletableFuture<Double> result : results) {
+            sum += result.join();
+        }
+
+        System.out.printf("Все задания выполнены за %.1f мс, сумма результатов %.2f%n",
+                (System.nanoTime() - start) / 1e6, sum);
+    }
 }
\ No newline at end of file
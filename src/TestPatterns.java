@@ -72,6 +72,22 @@ public class TestPatterns {
         System.out.println("Тип созданного объекта: " + tabulatedFunc.getClass().getSimpleName());
         System.out.println("Количество точек: " + tabulatedFunc.getPointsCount());
 
+        System.out.println("\nМеняем фабрику на DoubleArrayTabulatedFunctionFactory:");
+        TabulatedFunctions.setTabulatedFunctionFactory(
+                new DoubleArrayTabulatedFunction.DoubleArrayTabulatedFunctionFactory());
+        tabulatedFunc = TabulatedFunctions.tabulate(cosFunction, 0, Math.PI, 11);
+        System.out.println("Создана tabulate(f, 0, π, 11) с новой фабрикой");
+        System.out.println("Тип созданного объекта: " + tabulatedFunc.getClass().getSimpleName());
+        System.out.println("Количество точек: " + tabulatedFunc.getPointsCount());
+
+        System.out.println("\nМеняем фабрику на SkipListTabulatedFunctionFactory:");
+        TabulatedFunctions.setTabulatedFunctionFactory(
+                new SkipListTabulatedFunction.SkipListTabulatedFunctionFactory());
+        tabulatedFunc = TabulatedFunctions.tabulate(cosFunction, 0, Math.PI, 11);
+        System.out.println("Создана tabulate(f, 0, π, 11) с новой фабрикой");
+        System.out.println("Тип созданного объекта: " + tabulatedFunc.getClass().getSimpleName());
+        System.out.println("Количество точек: " + tabulatedFunc.getPointsCount());
+
         System.out.println("\nВозвращаем фабрику обратно на ArrayTabulatedFunctionFactory:");
         TabulatedFunctions.setTabulatedFunctionFactory(
                 new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory());
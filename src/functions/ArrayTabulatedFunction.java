@@ -1,14 +1,27 @@
 package functions;
 
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
 import java.io.*;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+// Точки в массиве, упорядоченном по X. clone() не копирует массив, а делит его с копией до первого изменения,
+// поэтому clone() нельзя вызывать одновременно с изменением исходной функции в другом потоке
 public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
     private static final long serialVersionUID = 1L;
     private FunctionPoint[] points;
     private int pointsCount;
+    // Массив точек общий с клоном и копируется перед первым изменением. Сами точки тоже могут
+    // быть общими, поэтому изменённая точка всегда заменяется новым объектом
+    private transient CopyOnWriteMark pointsMark = new CopyOnWriteMark();
+    private boolean uniformGrid;
+    private double gridStep;
     private static final double EPSILON = 1e-10;
+    private static final int CURSOR_WALK_LIMIT = 8;
+    private static final double GRID_TOLERANCE = 1e-9;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(ArrayTabulatedFunction.class);
 
     public ArrayTabulatedFunction(double leftX, double rightX, int pointsCount) {
         if (leftX >= rightX) {
@@ -27,6 +40,9 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             double x = leftX + step * i;
             points[i] = new FunctionPoint(x, 0);
         }
+
+        this.uniformGrid = true;
+        this.gridStep = step;
     }
 
     public ArrayTabulatedFunction(double leftX, double rightX, double[] values) {
@@ -46,6 +62,9 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             double x = leftX + step * i;
             points[i] = new FunctionPoint(x, values[i]);
         }
+
+        this.uniformGrid = true;
+        this.gridStep = step;
     }
     public ArrayTabulatedFunction(FunctionPoint[] points) {
         if (points.length < 2) {
@@ -63,6 +82,70 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
         for (int i = 0; i < points.length; i++) {
             this.points[i] = new FunctionPoint(points[i]);
         }
+        detectUniformGrid();
+    }
+
+    public ArrayTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        if (xValues.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < xValues.length; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = xValues.length;
+        this.points = new FunctionPoint[xValues.length + 5];
+        for (int i = 0; i < xValues.length; i++) {
+            this.points[i] = new FunctionPoint(xValues[i], yValues[i]);
+        }
+        detectUniformGrid();
+    }
+
+    // Хранилище, заполненное построителем, принимается без копирования
+    private ArrayTabulatedFunction(FunctionPoint[] points, int pointsCount) {
+        for (int i = 1; i < pointsCount; i++) {
+            if (points[i].getX() - points[i-1].getX() <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = pointsCount;
+        this.points = points;
+        detectUniformGrid();
+    }
+
+    // Копия делит массив точек с оригиналом, пока одна из функций его не изменит
+    private ArrayTabulatedFunction(ArrayTabulatedFunction function) {
+        CopyOnWriteMark mark = function.pointsMark;
+        mark.shared = true;
+        this.points = function.points;
+        this.pointsCount = function.pointsCount;
+        this.pointsMark = mark;
+        this.uniformGrid = function.uniformGrid;
+        this.gridStep = function.gridStep;
+    }
+
+    private void ensureExclusive() {
+        if (pointsMark.shared) {
+            points = points.clone();
+            pointsMark = new CopyOnWriteMark();
+        }
+    }
+
+    private void detectUniformGrid() {
+        double leftX = points[0].getX();
+        gridStep = (points[pointsCount - 1].getX() - leftX) / (pointsCount - 1);
+        uniformGrid = gridStep > 0;
+
+        for (int i = 1; i < pointsCount - 1 && uniformGrid; i++) {
+            uniformGrid = Math.abs(points[i].getX() - (leftX + gridStep * i)) <= gridStep * GRID_TOLERANCE;
+        }
     }
 
     public double getLeftDomainBorder() {
@@ -78,24 +161,95 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             return Double.NaN;
         }
 
-        for (int i = 0; i < pointsCount; i++) {
-            if (Math.abs(points[i].getX() - x) < EPSILON) {
-                return points[i].getY();
+        return interpolate(findIntervalIndex(x), x);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = getLeftDomainBorder() - EPSILON;
+        double rightX = getRightDomainBorder() + EPSILON;
+        double previousX = Double.NEGATIVE_INFINITY;
+        int index = 0;
+
+        for (int i = 0; i < xs.length; i++) {
+            double x = xs[i];
+            if (x < leftX || x > rightX) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            // Вперёд курсор сдвигается не больше чем на CURSOR_WALK_LIMIT точек, дальше быстрее искать заново
+            if (!(x >= previousX) || (index + CURSOR_WALK_LIMIT < pointsCount && points[index + CURSOR_WALK_LIMIT].getX() <= x)) {
+                index = findIntervalIndex(x);
+            } else {
+                while (index < pointsCount - 2 && points[index + 1].getX() <= x) {
+                    index++;
+                }
+            }
+            previousX = x;
+
+            out[i] = interpolate(index, x);
+        }
+    }
+
+    private double interpolate(int index, double x) {
+        FunctionPoint left = points[index];
+        FunctionPoint right = points[index + 1];
+
+        if (Math.abs(left.getX() - x) < EPSILON) {
+            return left.getY();
+        }
+        if (Math.abs(right.getX() - x) < EPSILON) {
+            return right.getY();
+        }
+
+        double x1 = left.getX();
+        double x2 = right.getX();
+        double y1 = left.getY();
+        double y2 = right.getY();
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // Индекс левого конца отрезка [x(i), x(i+1)], содержащего x (от 0 до pointsCount - 2)
+    private int findIntervalIndex(double x) {
+        if (uniformGrid) {
+            int index = (int) ((x - points[0].getX()) / gridStep);
+            if (index < 0) {
+                index = 0;
+            } else if (index > pointsCount - 2) {
+                index = pointsCount - 2;
+            }
+
+            if ((index == 0 || points[index].getX() <= x) &&
+                    (index == pointsCount - 2 || x < points[index + 1].getX())) {
+                if (LookupProbes.ENABLED) {
+                    LookupProbes.record(PROBES, 1);
+                }
+                return index;
             }
         }
 
-        for (int i = 0; i < pointsCount - 1; i++) {
-            double x1 = points[i].getX();
-            double x2 = points[i + 1].getX();
+        int low = 0;
+        int high = pointsCount - 1;
+        int probes = uniformGrid ? 1 : 0;
 
-            if (x >= x1 - EPSILON && x <= x2 + EPSILON) {
-                double y1 = points[i].getY();
-                double y2 = points[i + 1].getY();
-                return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            probes++;
+            if (points[mid].getX() <= x) {
+                low = mid;
+            } else {
+                high = mid;
             }
         }
 
-        return Double.NaN;
+        if (LookupProbes.ENABLED) {
+            LookupProbes.record(PROBES, probes);
+        }
+        return low;
     }
 
     public int getPointsCount() {
@@ -119,6 +273,8 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             throw new InappropriateFunctionPointException("Новая точка нарушает порядок X координат");
         }
 
+        ensureExclusive();
+        breakUniformGrid(points[index].getX(), point.getX());
         points[index] = new FunctionPoint(point);
     }
 
@@ -139,7 +295,9 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             throw new InappropriateFunctionPointException("Новая координата X нарушает порядок точек");
         }
 
-        points[index].setX(x);
+        ensureExclusive();
+        breakUniformGrid(points[index].getX(), x);
+        points[index] = new FunctionPoint(x, points[index].getY());
     }
 
     public double getPointY(int index) {
@@ -153,7 +311,8 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
         if (index < 0 || index >= pointsCount) {
             throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
         }
-        points[index].setY(y);
+        ensureExclusive();
+        points[index] = new FunctionPoint(points[index].getX(), y);
     }
 
     public void deletePoint(int index) {
@@ -164,6 +323,11 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
         }
 
+        if (index != 0 && index != pointsCount - 1) {
+            uniformGrid = false;
+        }
+
+        ensureExclusive();
         System.arraycopy(points, index+1, points, index, pointsCount-index-1);
         pointsCount--;
     }
@@ -179,6 +343,9 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             FunctionPoint[] newPoints = new FunctionPoint[points.length * 2];
             System.arraycopy(points, 0, newPoints, 0, pointsCount);
             points = newPoints;
+            pointsMark = new CopyOnWriteMark();
+        } else {
+            ensureExclusive();
         }
 
         int pos = 0;
@@ -186,10 +353,22 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             pos++;
         }
 
+        if (uniformGrid) {
+            double expectedX = pos == 0 ? points[0].getX() - gridStep : points[pointsCount - 1].getX() + gridStep;
+            uniformGrid = (pos == 0 || pos == pointsCount) &&
+                    Math.abs(point.getX() - expectedX) <= gridStep * GRID_TOLERANCE;
+        }
+
         System.arraycopy(points, pos, points, pos + 1, pointsCount - pos);
         points[pos] = new FunctionPoint(point);
         pointsCount++;
     }
+
+    private void breakUniformGrid(double oldX, double newX) {
+        if (Math.abs(newX - oldX) > gridStep * GRID_TOLERANCE) {
+            uniformGrid = false;
+        }
+    }
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeInt(pointsCount);
         for (int i = 0; i < pointsCount; i++) {
@@ -198,14 +377,21 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
         }
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pointsMark = new CopyOnWriteMark();
+    }
+
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         pointsCount = in.readInt();
         points = new FunctionPoint[pointsCount + 5];
+        pointsMark = new CopyOnWriteMark();
         for (int i = 0; i < pointsCount; i++) {
             double x = in.readDouble();
             double y = in.readDouble();
             points[i] = new FunctionPoint(x, y);
         }
+        detectUniformGrid();
     }
     @Override
     public String toString() {
@@ -261,11 +447,7 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
 
     @Override
     public Object clone() {
-        FunctionPoint[] clonedPoints = new FunctionPoint[pointsCount];
-        for (int i = 0; i < pointsCount; i++) {
-            clonedPoints[i] = (FunctionPoint) points[i].clone();
-        }
-        return new ArrayTabulatedFunction(clonedPoints);
+        return new ArrayTabulatedFunction(this);
     }
     @Override
     public Iterator<FunctionPoint> iterator() {
@@ -291,6 +473,51 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
             }
         };
     }
+    private static final class Builder implements TabulatedFunctionBuilder {
+        private FunctionPoint[] points;
+        private final int pointsCount;
+
+        Builder(int pointsCount) {
+            if (pointsCount < 2) {
+                throw new IllegalArgumentException("Нужно не меньше 2 точек");
+            }
+            this.pointsCount = pointsCount;
+            this.points = new FunctionPoint[pointsCount + 5];
+        }
+
+        @Override
+        public int getPointsCount() {
+            return pointsCount;
+        }
+
+        @Override
+        public void setPoint(int index, double x, double y) {
+            if (points == null) {
+                throw new IllegalStateException("Функция уже построена");
+            }
+            if (index < 0 || index >= pointsCount) {
+                throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+            }
+            points[index] = new FunctionPoint(x, y);
+        }
+
+        @Override
+        public TabulatedFunction build() {
+            if (points == null) {
+                throw new IllegalStateException("Функция уже построена");
+            }
+            for (int i = 0; i < pointsCount; i++) {
+                if (points[i] == null) {
+                    throw new IllegalStateException("Точка с индексом " + i + " не задана");
+                }
+            }
+
+            FunctionPoint[] storage = points;
+            points = null;
+            return new ArrayTabulatedFunction(storage, pointsCount);
+        }
+    }
+
     public static class ArrayTabulatedFunctionFactory implements TabulatedFunctionFactory {
         @Override
         public TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount) {
@@ -306,6 +533,16 @@ public class ArrayTabulatedFunction implements TabulatedFunction, Serializable{
         public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
             return new ArrayTabulatedFunction(points);
         }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+            return new ArrayTabulatedFunction(xValues, yValues);
+        }
+
+        @Override
+        public TabulatedFunctionBuilder newBuilder(int pointsCount) {
+            return new Builder(pointsCount);
+        }
     }
 }
 
@@ -0,0 +1,278 @@
+package functions;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Двоичный формат табулированной функции.
+// Версия 1: magic (int, big-endian), версия (byte), порядок байт (byte), флаги (short), количество точек (long),
+// затем координаты - парами (x, y) либо, с флагом COLUMNAR, сначала все x, потом все y,
+// либо, с флагом GORILLA, сжатый битовый поток GorillaCodec до конца данных.
+// Старый формат без заголовка (int количество точек, затем пары big-endian) по-прежнему читается:
+// количество точек неотрицательно, а magic - отрицательное число
+final class BinaryTabulatedFormat {
+    static final int MAGIC = 0xCA7AB1E5;
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int LEGACY_HEADER_BYTES = Integer.BYTES;
+    static final int FLAG_COLUMNAR = 1;
+    static final int FLAG_GORILLA = 2;
+
+    private static final byte BIG_ENDIAN = 0;
+    private static final byte LITTLE_ENDIAN = 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int BLOCK_POINTS = BUFFER_BYTES / (2 * Double.BYTES);
+
+    private BinaryTabulatedFormat() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    static final class Header {
+        final ByteOrder order;
+        final int flags;
+        final int pointsCount;
+        final int dataOffset;
+
+        Header(ByteOrder order, int flags, int pointsCount, int dataOffset) {
+            this.order = order;
+            this.flags = flags;
+            this.pointsCount = pointsCount;
+            this.dataOffset = dataOffset;
+        }
+
+        boolean isColumnar() {
+            return (flags & FLAG_COLUMNAR) != 0;
+        }
+
+        boolean isCompressed() {
+            return (flags & FLAG_GORILLA) != 0;
+        }
+    }
+
+    static Header readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+        buffer.limit(LEGACY_HEADER_BYTES);
+        readFully(channel, buffer);
+
+        int first = buffer.getInt(0);
+        if (first >= 0) {
+            return new Header(ByteOrder.BIG_ENDIAN, 0, first, LEGACY_HEADER_BYTES);
+        }
+        if (first != MAGIC) {
+            throw new IOException("Неизвестный двоичный формат табулированной функции");
+        }
+
+        buffer.limit(HEADER_BYTES);
+        readFully(channel, buffer);
+
+        byte version = buffer.get(4);
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия двоичного формата: " + version);
+        }
+
+        ByteOrder order;
+        switch (buffer.get(5)) {
+            case BIG_ENDIAN:
+                order = ByteOrder.BIG_ENDIAN;
+                break;
+            case LITTLE_ENDIAN:
+                order = ByteOrder.LITTLE_ENDIAN;
+                break;
+            default:
+                throw new IOException("Неизвестный порядок байт: " + buffer.get(5));
+        }
+
+        int flags = buffer.getShort(6) & 0xFFFF;
+        long pointsCount = buffer.getLong(8);
+        if (pointsCount < 0 || pointsCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Недопустимое количество точек: " + pointsCount);
+        }
+
+        return new Header(order, flags, (int) pointsCount, HEADER_BYTES);
+    }
+
+    // Координаты собираются блоками в массив и переносятся в буфер одной операцией через представление DoubleBuffer
+    static void write(TabulatedFunction function, WritableByteChannel channel, ByteOrder order, boolean columnar) throws IOException {
+        int pointsCount = function.getPointsCount();
+        ByteBuffer buffer = ByteBuffer.allocate(
+                (int) Math.min(BUFFER_BYTES, HEADER_BYTES + 2L * Double.BYTES * pointsCount));
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : BIG_ENDIAN);
+        buffer.putShort((short) (columnar ? FLAG_COLUMNAR : 0));
+        buffer.putLong(pointsCount);
+        buffer.order(order);
+
+        double[] block = new double[2 * Math.min(BLOCK_POINTS, pointsCount)];
+        if (columnar) {
+            for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+                int count = Math.min(BLOCK_POINTS, pointsCount - index);
+                for (int i = 0; i < count; i++) {
+                    block[i] = function.getPointX(index + i);
+                }
+                putDoubles(channel, buffer, block, count);
+            }
+            for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+                int count = Math.min(BLOCK_POINTS, pointsCount - index);
+                for (int i = 0; i < count; i++) {
+                    block[i] = function.getPointY(index + i);
+                }
+                putDoubles(channel, buffer, block, count);
+            }
+        } else {
+            for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+                int count = Math.min(BLOCK_POINTS, pointsCount - index);
+                for (int i = 0; i < count; i++) {
+                    block[2 * i] = function.getPointX(index + i);
+                    block[2 * i + 1] = function.getPointY(index + i);
+                }
+                putDoubles(channel, buffer, block, 2 * count);
+            }
+        }
+
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    // Сжатый поток не зависит от порядка байт, в заголовке записывается big-endian
+    static void writeCompressed(TabulatedFunction function, WritableByteChannel channel) throws IOException {
+        int pointsCount = function.getPointsCount();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.put(BIG_ENDIAN);
+        header.putShort((short) FLAG_GORILLA);
+        header.putLong(pointsCount);
+        header.flip();
+        writeFully(channel, header);
+
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder(channel);
+        for (int i = 0; i < pointsCount; i++) {
+            encoder.add(function.getPointX(i), function.getPointY(i));
+        }
+        encoder.finish();
+    }
+
+    private static void putDoubles(WritableByteChannel channel, ByteBuffer buffer, double[] values, int count) throws IOException {
+        int offset = 0;
+        while (offset < count) {
+            if (buffer.remaining() < Double.BYTES) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            int length = Math.min(count - offset, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, offset, length);
+            buffer.position(buffer.position() + length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    // Координаты читаются блоками через представление DoubleBuffer и по блоку передаются построителю,
+    // поэтому целиком они лежат только в итоговом хранилище функции.
+    // Столбцы x и y из канала с произвольным доступом читаются попеременно; из потокового канала
+    // столбец x приходится сначала прочитать целиком
+    static void readPoints(ReadableByteChannel channel, Header header, TabulatedFunctionBuilder builder) throws IOException {
+        int pointsCount = header.pointsCount;
+        double[] xBlock = new double[Math.min(BLOCK_POINTS, pointsCount)];
+        double[] yBlock = new double[xBlock.length];
+
+        if (header.isCompressed()) {
+            GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(channel);
+            for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+                int count = Math.min(BLOCK_POINTS, pointsCount - index);
+                decoder.read(xBlock, yBlock, 0, count);
+                builder.setPoints(index, xBlock, yBlock, count);
+            }
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(
+                (int) Math.min(BUFFER_BYTES, 2L * Double.BYTES * Math.max(pointsCount, 1))).order(header.order);
+
+        if (header.isColumnar()) {
+            readColumns(channel, buffer, builder, xBlock, yBlock, pointsCount);
+            return;
+        }
+
+        int index = 0;
+        while (index < pointsCount) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity() & ~(2 * Double.BYTES - 1), 2L * Double.BYTES * (pointsCount - index)));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            DoubleBuffer values = buffer.asDoubleBuffer();
+            int count = values.remaining() / 2;
+            for (int i = 0; i < count; i++) {
+                xBlock[i] = values.get(2 * i);
+                yBlock[i] = values.get(2 * i + 1);
+            }
+            builder.setPoints(index, xBlock, yBlock, count);
+            index += count;
+        }
+    }
+
+    private static void readColumns(ReadableByteChannel channel, ByteBuffer buffer, TabulatedFunctionBuilder builder,
+                                    double[] xBlock, double[] yBlock, int pointsCount) throws IOException {
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel seekable = (SeekableByteChannel) channel;
+            long xPosition = seekable.position();
+            long yPosition = xPosition + (long) Double.BYTES * pointsCount;
+            for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+                int count = Math.min(BLOCK_POINTS, pointsCount - index);
+                seekable.position(xPosition + (long) Double.BYTES * index);
+                readColumn(channel, buffer, xBlock, count);
+                seekable.position(yPosition + (long) Double.BYTES * index);
+                readColumn(channel, buffer, yBlock, count);
+                builder.setPoints(index, xBlock, yBlock, count);
+            }
+            seekable.position(yPosition + (long) Double.BYTES * pointsCount);
+            return;
+        }
+
+        double[] xColumn = new double[pointsCount];
+        readColumn(channel, buffer, xColumn, pointsCount);
+        for (int index = 0; index < pointsCount; index += BLOCK_POINTS) {
+            int count = Math.min(BLOCK_POINTS, pointsCount - index);
+            System.arraycopy(xColumn, index, xBlock, 0, count);
+            readColumn(channel, buffer, yBlock, count);
+            builder.setPoints(index, xBlock, yBlock, count);
+        }
+    }
+
+    private static void readColumn(ReadableByteChannel channel, ByteBuffer buffer, double[] column, int pointsCount) throws IOException {
+        int index = 0;
+        while (index < pointsCount) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity() & ~(Double.BYTES - 1), (long) Double.BYTES * (pointsCount - index)));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            DoubleBuffer values = buffer.asDoubleBuffer();
+            int count = values.remaining();
+            values.get(column, index, count);
+            index += count;
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Неожиданный конец двоичных данных табулированной функции");
+            }
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+// Табулированная функция для общего доступа из многих потоков: координаты хранятся в массивах
+// xValues/yValues, как в DoubleArrayTabulatedFunction, и защищены StampedLock.
+// Чтение сначала выполняется оптимистично, без блокировки: поля копируются в локальные переменные,
+// индексы ограничиваются длинами массивов, и если за это время был писатель, validate не проходит
+// и чтение повторяется под блокировкой чтения. Изменения выполняются под блокировкой записи,
+// поэтому каждое из них атомарно для читателей
+public class ConcurrentTabulatedFunction implements TabulatedFunction, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final double EPSILON = 1e-10;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(ConcurrentTabulatedFunction.class);
+    private static final double GRID_TOLERANCE = 1e-9;
+
+    private final StampedLock lock = new StampedLock();
+    private double[] xValues;
+    private double[] yValues;
+    private int pointsCount;
+    private boolean uniformGrid;
+    private double gridStep;
+
+    public ConcurrentTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        this(leftX, rightX, new double[checkPointsCount(pointsCount)]);
+    }
+
+    public ConcurrentTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница должна быть меньше правой");
+        }
+        checkPointsCount(values.length);
+
+        this.pointsCount = values.length;
+        this.xValues = new double[pointsCount + 5];
+        this.yValues = Arrays.copyOf(values, pointsCount + 5);
+
+        double step = (rightX - leftX) / (pointsCount - 1);
+        for (int i = 0; i < pointsCount; i++) {
+            xValues[i] = leftX + step * i;
+        }
+
+        this.uniformGrid = true;
+        this.gridStep = step;
+    }
+
+    public ConcurrentTabulatedFunction(FunctionPoint[] points) {
+        if (points.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < points.length; i++) {
+            if (points[i].getX() - points[i-1].getX() <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = points.length;
+        this.xValues = new double[pointsCount + 5];
+        this.yValues = new double[pointsCount + 5];
+        for (int i = 0; i < pointsCount; i++) {
+            xValues[i] = points[i].getX();
+            yValues[i] = points[i].getY();
+        }
+        detectUniformGrid();
+    }
+
+    public ConcurrentTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        if (xValues.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < xValues.length; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = xValues.length;
+        this.xValues = Arrays.copyOf(xValues, xValues.length + 5);
+        this.yValues = Arrays.copyOf(yValues, yValues.length + 5);
+        detectUniformGrid();
+    }
+
+    // Потокобезопасная копия любой табулированной функции
+    public ConcurrentTabulatedFunction(TabulatedFunction function) {
+        this.pointsCount = function.getPointsCount();
+        this.xValues = new double[pointsCount + 5];
+        this.yValues = new double[pointsCount + 5];
+        for (int i = 0; i < pointsCount; i++) {
+            xValues[i] = function.getPointX(i);
+            yValues[i] = function.getPointY(i);
+        }
+        detectUniformGrid();
+    }
+
+    private static int checkPointsCount(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек должно быть не менее 2");
+        }
+        return pointsCount;
+    }
+
+    private void detectUniformGrid() {
+        double leftX = xValues[0];
+        gridStep = (xValues[pointsCount - 1] - leftX) / (pointsCount - 1);
+        uniformGrid = gridStep > 0;
+
+        for (int i = 1; i < pointsCount - 1 && uniformGrid; i++) {
+            uniformGrid = Math.abs(xValues[i] - (leftX + gridStep * i)) <= gridStep * GRID_TOLERANCE;
+        }
+    }
+
+    private static void checkIndex(int index, int pointsCount) {
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+    }
+
+    // Согласованный снимок полей для одного чтения. При оптимистичном чтении массивы могли
+    // быть заменены писателем, поэтому количество точек ограничивается их длинами
+    private static final class View {
+        final double[] xValues;
+        final double[] yValues;
+        final int pointsCount;
+        final boolean uniformGrid;
+        final double gridStep;
+
+        View(ConcurrentTabulatedFunction function) {
+            this.xValues = function.xValues;
+            this.yValues = function.yValues;
+            this.pointsCount = Math.max(2, Math.min(function.pointsCount, Math.min(xValues.length, yValues.length)));
+            this.uniformGrid = function.uniformGrid;
+            this.gridStep = function.gridStep;
+        }
+
+        double valueAt(double x) {
+            return IntervalLookup.valueAt(xValues, yValues, pointsCount, uniformGrid, gridStep, x, PROBES);
+        }
+
+        int findIntervalIndex(double x) {
+            return IntervalLookup.findIntervalIndex(xValues, pointsCount, uniformGrid, gridStep, x, PROBES);
+        }
+
+        void valuesAt(double[] xs, double[] out) {
+            IntervalLookup.valuesAt(xValues, yValues, pointsCount, uniformGrid, gridStep, xs, out, PROBES);
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        long stamp = lock.tryOptimisticRead();
+        double x = xValues[0];
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                x = xValues[0];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return x;
+    }
+
+    public double getRightDomainBorder() {
+        long stamp = lock.tryOptimisticRead();
+        View view = new View(this);
+        double x = view.xValues[view.pointsCount - 1];
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                x = xValues[pointsCount - 1];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return x;
+    }
+
+    public double getFunctionValue(double x) {
+        long stamp = lock.tryOptimisticRead();
+        double value = new View(this).valueAt(x);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = new View(this).valueAt(x);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    // Весь пакет вычисляется по одному состоянию таблицы. Если out совпадает с xs, оптимистичную
+    // попытку повторить нельзя (аргументы уже перезаписаны), поэтому сразу берётся блокировка чтения
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        if (out != xs) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                new View(this).valuesAt(xs, out);
+                if (lock.validate(stamp)) {
+                    return;
+                }
+            }
+        }
+
+        long stamp = lock.readLock();
+        try {
+            new View(this).valuesAt(xs, out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int getPointsCount() {
+        long stamp = lock.tryOptimisticRead();
+        int count = pointsCount;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = pointsCount;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return count;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        long stamp = lock.tryOptimisticRead();
+        View view = new View(this);
+        int count = pointsCount;
+        boolean inside = index >= 0 && index < view.pointsCount;
+        double x = inside ? view.xValues[index] : 0;
+        double y = inside ? view.yValues[index] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                checkIndex(index, pointsCount);
+                return new FunctionPoint(xValues[index], yValues[index]);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkIndex(index, count);
+        return new FunctionPoint(x, y);
+    }
+
+    public double getPointX(int index) {
+        long stamp = lock.tryOptimisticRead();
+        View view = new View(this);
+        int count = pointsCount;
+        double x = index >= 0 && index < view.pointsCount ? view.xValues[index] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                checkIndex(index, pointsCount);
+                return xValues[index];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkIndex(index, count);
+        return x;
+    }
+
+    public double getPointY(int index) {
+        long stamp = lock.tryOptimisticRead();
+        View view = new View(this);
+        int count = pointsCount;
+        double y = index >= 0 && index < view.pointsCount ? view.yValues[index] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                checkIndex(index, pointsCount);
+                return yValues[index];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        checkIndex(index, count);
+        return y;
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws InappropriateFunctionPointException {
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index, pointsCount);
+
+            if ((index > 0 && point.getX() <= xValues[index-1] + EPSILON) ||
+                    (index < pointsCount-1 && point.getX() >= xValues[index+1] - EPSILON)) {
+                throw new InappropriateFunctionPointException("Новая точка нарушает порядок X координат");
+            }
+
+            breakUniformGrid(xValues[index], point.getX());
+            xValues[index] = point.getX();
+            yValues[index] = point.getY();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setPointX(int index, double x) throws InappropriateFunctionPointException {
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index, pointsCount);
+
+            if ((index > 0 && x <= xValues[index-1] + EPSILON) ||
+                    (index < pointsCount-1 && x >= xValues[index+1] - EPSILON)) {
+                throw new InappropriateFunctionPointException("Новая координата X нарушает порядок точек");
+            }
+
+            breakUniformGrid(xValues[index], x);
+            xValues[index] = x;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setPointY(int index, double y) {
+        long stamp = lock.writeLock();
+        try {
+            checkIndex(index, pointsCount);
+            yValues[index] = y;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void deletePoint(int index) {
+        long stamp = lock.writeLock();
+        try {
+            if (pointsCount <= 2) {
+                throw new IllegalStateException("Нельзя удалить точку: минимальное количество точек - 2");
+            }
+            checkIndex(index, pointsCount);
+
+            if (index != 0 && index != pointsCount - 1) {
+                uniformGrid = false;
+            }
+
+            System.arraycopy(xValues, index+1, xValues, index, pointsCount-index-1);
+            System.arraycopy(yValues, index+1, yValues, index, pointsCount-index-1);
+            pointsCount--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        long stamp = lock.writeLock();
+        try {
+            double x = point.getX();
+            int pos = x < xValues[0] ? 0 : new View(this).findIntervalIndex(x) + 1;
+            if (pos == pointsCount - 1 && x >= xValues[pointsCount - 1]) {
+                pos = pointsCount;
+            }
+
+            if ((pos > 0 && Math.abs(xValues[pos - 1] - x) < EPSILON) ||
+                    (pos < pointsCount && Math.abs(xValues[pos] - x) < EPSILON)) {
+                throw new InappropriateFunctionPointException("Точка с X=" + x + " уже существует");
+            }
+
+            if (pointsCount >= xValues.length) {
+                xValues = Arrays.copyOf(xValues, xValues.length * 2);
+                yValues = Arrays.copyOf(yValues, yValues.length * 2);
+            }
+
+            if (uniformGrid) {
+                double expectedX = pos == 0 ? xValues[0] - gridStep : xValues[pointsCount - 1] + gridStep;
+                uniformGrid = (pos == 0 || pos == pointsCount) &&
+                        Math.abs(x - expectedX) <= gridStep * GRID_TOLERANCE;
+            }
+
+            System.arraycopy(xValues, pos, xValues, pos + 1, pointsCount - pos);
+            System.arraycopy(yValues, pos, yValues, pos + 1, pointsCount - pos);
+            xValues[pos] = x;
+            yValues[pos] = point.getY();
+            pointsCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void breakUniformGrid(double oldX, double newX) {
+        if (Math.abs(newX - oldX) > gridStep * GRID_TOLERANCE) {
+            uniformGrid = false;
+        }
+    }
+
+    // Копия точек под блокировкой чтения: по ней работают toString, equals, hashCode, clone и итератор
+    private double[][] snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return new double[][]{Arrays.copyOf(xValues, pointsCount), Arrays.copyOf(yValues, pointsCount)};
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        double[][] points = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int i = 0; i < points[0].length; i++) {
+            sb.append("(").append(points[0][i]).append("; ").append(points[1][i]).append(")");
+            if (i < points[0].length - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TabulatedFunction)) return false;
+
+        TabulatedFunction that = (TabulatedFunction) o;
+        double[][] points = snapshot();
+
+        if (points[0].length != that.getPointsCount()) return false;
+
+        for (int i = 0; i < points[0].length; i++) {
+            if (!new FunctionPoint(points[0][i], points[1][i]).equals(that.getPoint(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        double[][] points = snapshot();
+        int result = points[0].length;
+        for (int i = 0; i < points[0].length; i++) {
+            long xBits = Double.doubleToLongBits(points[0][i]);
+            long yBits = Double.doubleToLongBits(points[1][i]);
+            result ^= (int)(xBits ^ (xBits >>> 32)) ^ (int)(yBits ^ (yBits >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public Object clone() {
+        double[][] points = snapshot();
+        return new ConcurrentTabulatedFunction(points[0], points[1]);
+    }
+
+    // Согласованный снимок всей таблицы: точки копируются под блокировкой чтения
+    @Override
+    public FrozenTabulatedFunction freeze() {
+        long stamp = lock.readLock();
+        try {
+            return new FrozenTabulatedFunction(Arrays.copyOf(xValues, pointsCount), Arrays.copyOf(yValues, pointsCount),
+                    pointsCount, uniformGrid, gridStep);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Итератор обходит снимок точек на момент своего создания и не видит последующих изменений
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        double[][] points = snapshot();
+        return new Iterator<FunctionPoint>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return currentIndex < points[0].length;
+            }
+
+            @Override
+            public FunctionPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Нет следующего элемента");
+                }
+                FunctionPoint point = new FunctionPoint(points[0][currentIndex], points[1][currentIndex]);
+                currentIndex++;
+                return point;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Удаление не поддерживается");
+            }
+        };
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+    }
+
+    public static class ConcurrentTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount) {
+            return new ConcurrentTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new ConcurrentTabulatedFunction(leftX, rightX, values);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
+            return new ConcurrentTabulatedFunction(points);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+            return new ConcurrentTabulatedFunction(xValues, yValues);
+        }
+    }
+}
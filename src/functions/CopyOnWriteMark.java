@@ -0,0 +1,9 @@
+package functions;
+
+// Метка хранилища, которое делят табулированная функция, её клоны и снимки. Объект метки один
+// на хранилище и общий у всех его владельцев, а флаг volatile: метку, поставленную clone()
+// в одном потоке, увидит и другой поток, который потом изменяет оригинал, и скопирует хранилище.
+// Владелец, скопировавший хранилище, заводит себе новую метку
+final class CopyOnWriteMark {
+    volatile boolean shared;
+}
@@ -0,0 +1,492 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Координаты в двух массивах double, упорядоченных по X. clone() и freeze() делят массивы с копией
+// до первого изменения, поэтому их нельзя вызывать одновременно с изменением функции в другом потоке
+public class DoubleArrayTabulatedFunction implements TabulatedFunction, Serializable {
+    private static final long serialVersionUID = 1L;
+    private double[] xValues;
+    private double[] yValues;
+    private int pointsCount;
+    // Массив общий с клоном и копируется перед первым изменением; X и Y отслеживаются
+    // раздельно, чтобы правка одних значений Y не копировала координаты X
+    private transient CopyOnWriteMark xValuesMark = new CopyOnWriteMark();
+    private transient CopyOnWriteMark yValuesMark = new CopyOnWriteMark();
+    private boolean uniformGrid;
+    private double gridStep;
+    private static final double EPSILON = 1e-10;
+    private static final double GRID_TOLERANCE = 1e-9;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(DoubleArrayTabulatedFunction.class);
+    private static final int FREEZE_SLACK = 16;
+
+    public DoubleArrayTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        this(leftX, rightX, checkPointsCount(pointsCount), new double[pointsCount]);
+    }
+
+    public DoubleArrayTabulatedFunction(double leftX, double rightX, double[] values) {
+        this(leftX, rightX, checkPointsCount(values.length), values);
+    }
+
+    private DoubleArrayTabulatedFunction(double leftX, double rightX, int pointsCount, double[] values) {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница должна быть меньше правой");
+        }
+
+        this.pointsCount = pointsCount;
+        this.xValues = new double[pointsCount + 5];
+        this.yValues = new double[pointsCount + 5];
+
+        double step = (rightX - leftX) / (pointsCount - 1);
+
+        for (int i = 0; i < pointsCount; i++) {
+            xValues[i] = leftX + step * i;
+        }
+        System.arraycopy(values, 0, yValues, 0, pointsCount);
+
+        this.uniformGrid = true;
+        this.gridStep = step;
+    }
+
+    public DoubleArrayTabulatedFunction(FunctionPoint[] points) {
+        if (points.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < points.length; i++) {
+            if (points[i].getX() - points[i-1].getX() <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = points.length;
+        this.xValues = new double[points.length + 5];
+        this.yValues = new double[points.length + 5];
+        for (int i = 0; i < points.length; i++) {
+            xValues[i] = points[i].getX();
+            yValues[i] = points[i].getY();
+        }
+        detectUniformGrid();
+    }
+
+    public DoubleArrayTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        if (xValues.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < xValues.length; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = xValues.length;
+        this.xValues = Arrays.copyOf(xValues, xValues.length + 5);
+        this.yValues = Arrays.copyOf(yValues, yValues.length + 5);
+        detectUniformGrid();
+    }
+
+    // Массивы, заполненные построителем, принимаются без копирования
+    private DoubleArrayTabulatedFunction(double[] xValues, double[] yValues, int pointsCount) {
+        for (int i = 1; i < pointsCount; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        this.pointsCount = pointsCount;
+        this.xValues = xValues;
+        this.yValues = yValues;
+        detectUniformGrid();
+    }
+
+    private DoubleArrayTabulatedFunction(double[] xValues, double[] yValues, int pointsCount, boolean uniformGrid, double gridStep) {
+        this.pointsCount = pointsCount;
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.uniformGrid = uniformGrid;
+        this.gridStep = gridStep;
+    }
+
+    // Копия делит массивы с оригиналом, пока одна из функций их не изменит
+    private DoubleArrayTabulatedFunction(DoubleArrayTabulatedFunction function) {
+        CopyOnWriteMark xMark = function.xValuesMark;
+        CopyOnWriteMark yMark = function.yValuesMark;
+        xMark.shared = true;
+        yMark.shared = true;
+        this.pointsCount = function.pointsCount;
+        this.xValues = function.xValues;
+        this.yValues = function.yValues;
+        this.xValuesMark = xMark;
+        this.yValuesMark = yMark;
+        this.uniformGrid = function.uniformGrid;
+        this.gridStep = function.gridStep;
+    }
+
+    // Функция над массивами замороженного снимка; снимок их не меняет, а эта функция скопирует перед изменением
+    static DoubleArrayTabulatedFunction sharing(double[] xValues, double[] yValues, int pointsCount, boolean uniformGrid, double gridStep) {
+        DoubleArrayTabulatedFunction function = new DoubleArrayTabulatedFunction(xValues, yValues, pointsCount, uniformGrid, gridStep);
+        function.xValuesMark.shared = true;
+        function.yValuesMark.shared = true;
+        return function;
+    }
+
+    // Снимок за O(1) делит массивы с этой функцией, если в них нет большого запаса ёмкости
+    @Override
+    public FrozenTabulatedFunction freeze() {
+        if (xValues.length - pointsCount > FREEZE_SLACK) {
+            return new FrozenTabulatedFunction(Arrays.copyOf(xValues, pointsCount), Arrays.copyOf(yValues, pointsCount),
+                    pointsCount, uniformGrid, gridStep);
+        }
+
+        xValuesMark.shared = true;
+        yValuesMark.shared = true;
+        return new FrozenTabulatedFunction(xValues, yValues, pointsCount, uniformGrid, gridStep);
+    }
+
+    private void ensureExclusiveXValues() {
+        if (xValuesMark.shared) {
+            xValues = Arrays.copyOf(xValues, xValues.length);
+            xValuesMark = new CopyOnWriteMark();
+        }
+    }
+
+    private void ensureExclusiveYValues() {
+        if (yValuesMark.shared) {
+            yValues = Arrays.copyOf(yValues, yValues.length);
+            yValuesMark = new CopyOnWriteMark();
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        xValuesMark = new CopyOnWriteMark();
+        yValuesMark = new CopyOnWriteMark();
+    }
+
+    private static int checkPointsCount(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек должно быть не менее 2");
+        }
+        return pointsCount;
+    }
+
+    private void detectUniformGrid() {
+        double leftX = xValues[0];
+        gridStep = (xValues[pointsCount - 1] - leftX) / (pointsCount - 1);
+        uniformGrid = gridStep > 0;
+
+        for (int i = 1; i < pointsCount - 1 && uniformGrid; i++) {
+            uniformGrid = Math.abs(xValues[i] - (leftX + gridStep * i)) <= gridStep * GRID_TOLERANCE;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        return xValues[0];
+    }
+
+    public double getRightDomainBorder() {
+        return xValues[pointsCount - 1];
+    }
+
+    public double getFunctionValue(double x) {
+        return IntervalLookup.valueAt(xValues, yValues, pointsCount, uniformGrid, gridStep, x, PROBES);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        IntervalLookup.valuesAt(xValues, yValues, pointsCount, uniformGrid, gridStep, xs, out, PROBES);
+    }
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        checkIndex(index);
+        return new FunctionPoint(xValues[index], yValues[index]);
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws InappropriateFunctionPointException {
+        checkIndex(index);
+
+        if ((index > 0 && point.getX() <= xValues[index-1] + EPSILON) ||
+                (index < pointsCount-1 && point.getX() >= xValues[index+1] - EPSILON)) {
+            throw new InappropriateFunctionPointException("Новая точка нарушает порядок X координат");
+        }
+
+        ensureExclusiveXValues();
+        ensureExclusiveYValues();
+        breakUniformGrid(xValues[index], point.getX());
+        xValues[index] = point.getX();
+        yValues[index] = point.getY();
+    }
+
+    public double getPointX(int index) {
+        checkIndex(index);
+        return xValues[index];
+    }
+
+    public void setPointX(int index, double x) throws InappropriateFunctionPointException {
+        checkIndex(index);
+
+        if ((index > 0 && x <= xValues[index-1] + EPSILON) ||
+                (index < pointsCount-1 && x >= xValues[index+1] - EPSILON)) {
+            throw new InappropriateFunctionPointException("Новая координата X нарушает порядок точек");
+        }
+
+        ensureExclusiveXValues();
+        breakUniformGrid(xValues[index], x);
+        xValues[index] = x;
+    }
+
+    public double getPointY(int index) {
+        checkIndex(index);
+        return yValues[index];
+    }
+
+    public void setPointY(int index, double y) {
+        checkIndex(index);
+        ensureExclusiveYValues();
+        yValues[index] = y;
+    }
+
+    public void deletePoint(int index) {
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалить точку: минимальное количество точек - 2");
+        }
+        checkIndex(index);
+
+        if (index != 0 && index != pointsCount - 1) {
+            uniformGrid = false;
+        }
+
+        ensureExclusiveXValues();
+        ensureExclusiveYValues();
+        System.arraycopy(xValues, index+1, xValues, index, pointsCount-index-1);
+        System.arraycopy(yValues, index+1, yValues, index, pointsCount-index-1);
+        pointsCount--;
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        double x = point.getX();
+        int pos = x < xValues[0] ? 0 : IntervalLookup.findIntervalIndex(xValues, pointsCount, uniformGrid, gridStep, x, PROBES) + 1;
+        if (pos == pointsCount - 1 && x >= xValues[pointsCount - 1]) {
+            pos = pointsCount;
+        }
+
+        if ((pos > 0 && Math.abs(xValues[pos - 1] - x) < EPSILON) ||
+                (pos < pointsCount && Math.abs(xValues[pos] - x) < EPSILON)) {
+            throw new InappropriateFunctionPointException("Точка с X=" + x + " уже существует");
+        }
+
+        if (pointsCount >= xValues.length) {
+            xValues = Arrays.copyOf(xValues, xValues.length * 2);
+            yValues = Arrays.copyOf(yValues, yValues.length * 2);
+            xValuesMark = new CopyOnWriteMark();
+            yValuesMark = new CopyOnWriteMark();
+        } else {
+            ensureExclusiveXValues();
+            ensureExclusiveYValues();
+        }
+
+        if (uniformGrid) {
+            double expectedX = pos == 0 ? xValues[0] - gridStep : xValues[pointsCount - 1] + gridStep;
+            uniformGrid = (pos == 0 || pos == pointsCount) &&
+                    Math.abs(x - expectedX) <= gridStep * GRID_TOLERANCE;
+        }
+
+        System.arraycopy(xValues, pos, xValues, pos + 1, pointsCount - pos);
+        System.arraycopy(yValues, pos, yValues, pos + 1, pointsCount - pos);
+        xValues[pos] = x;
+        yValues[pos] = point.getY();
+        pointsCount++;
+    }
+
+    private void breakUniformGrid(double oldX, double newX) {
+        if (Math.abs(newX - oldX) > gridStep * GRID_TOLERANCE) {
+            uniformGrid = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int i = 0; i < pointsCount; i++) {
+            sb.append("(").append(xValues[i]).append("; ").append(yValues[i]).append(")");
+            if (i < pointsCount - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TabulatedFunction)) return false;
+
+        TabulatedFunction that = (TabulatedFunction) o;
+
+        if (this.getPointsCount() != that.getPointsCount()) return false;
+
+        if (o instanceof DoubleArrayTabulatedFunction) {
+            DoubleArrayTabulatedFunction arrayThat = (DoubleArrayTabulatedFunction) o;
+            for (int i = 0; i < pointsCount; i++) {
+                if (Math.abs(this.xValues[i] - arrayThat.xValues[i]) >= EPSILON ||
+                        Math.abs(this.yValues[i] - arrayThat.yValues[i]) >= EPSILON) {
+                    return false;
+                }
+            }
+        } else {
+            for (int i = 0; i < pointsCount; i++) {
+                if (!getPoint(i).equals(that.getPoint(i))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = pointsCount;
+        for (int i = 0; i < pointsCount; i++) {
+            long xBits = Double.doubleToLongBits(xValues[i]);
+            long yBits = Double.doubleToLongBits(yValues[i]);
+            result ^= (int)(xBits ^ (xBits >>> 32)) ^ (int)(yBits ^ (yBits >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public Object clone() {
+        return new DoubleArrayTabulatedFunction(this);
+    }
+
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        return new Iterator<FunctionPoint>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return currentIndex < pointsCount;
+            }
+
+            @Override
+            public FunctionPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Нет следующего элемента");
+                }
+                FunctionPoint point = new FunctionPoint(xValues[currentIndex], yValues[currentIndex]);
+                currentIndex++;
+                return point;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Удаление не поддерживается");
+            }
+        };
+    }
+
+    private static final class Builder implements TabulatedFunctionBuilder {
+        private double[] xValues;
+        private double[] yValues;
+        private final int pointsCount;
+
+        Builder(int pointsCount) {
+            this.pointsCount = checkPointsCount(pointsCount);
+            this.xValues = new double[pointsCount + 5];
+            this.yValues = new double[pointsCount + 5];
+        }
+
+        @Override
+        public int getPointsCount() {
+            return pointsCount;
+        }
+
+        @Override
+        public void setPoint(int index, double x, double y) {
+            checkRange(index, 1);
+            xValues[index] = x;
+            yValues[index] = y;
+        }
+
+        @Override
+        public void setPoints(int fromIndex, double[] xValues, double[] yValues, int count) {
+            checkRange(fromIndex, count);
+            System.arraycopy(xValues, 0, this.xValues, fromIndex, count);
+            System.arraycopy(yValues, 0, this.yValues, fromIndex, count);
+        }
+
+        private void checkRange(int fromIndex, int count) {
+            if (xValues == null) {
+                throw new IllegalStateException("Функция уже построена");
+            }
+            if (fromIndex < 0 || count < 0 || fromIndex > pointsCount - count) {
+                throw new FunctionPointIndexOutOfBoundsException("Индекс " + fromIndex + " вне границ [0, " + (pointsCount-1) + "]");
+            }
+        }
+
+        @Override
+        public TabulatedFunction build() {
+            if (xValues == null) {
+                throw new IllegalStateException("Функция уже построена");
+            }
+
+            double[] xs = xValues;
+            double[] ys = yValues;
+            xValues = null;
+            yValues = null;
+            return new DoubleArrayTabulatedFunction(xs, ys, pointsCount);
+        }
+    }
+
+    public static class DoubleArrayTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount) {
+            return new DoubleArrayTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new DoubleArrayTabulatedFunction(leftX, rightX, values);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
+            return new DoubleArrayTabulatedFunction(points);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+            return new DoubleArrayTabulatedFunction(xValues, yValues);
+        }
+
+        @Override
+        public TabulatedFunctionBuilder newBuilder(int pointsCount) {
+            return new Builder(pointsCount);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Неизменяемый снимок табулированной функции. Массивы координат после создания не меняются,
+// поэтому объект можно передавать любому числу потоков без блокировок, а чтение координат
+// и вычисление значений ничего не копируют. Методы изменения бросают UnsupportedOperationException;
+// изменяемую копию даёт mutableCopy()
+public final class FrozenTabulatedFunction implements TabulatedFunction, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final double EPSILON = 1e-10;
+    private static final double GRID_TOLERANCE = 1e-9;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(FrozenTabulatedFunction.class);
+
+    private final double[] xValues;
+    private final double[] yValues;
+    private final int pointsCount;
+    private final boolean uniformGrid;
+    private final double gridStep;
+
+    // Массивы принимаются без копирования: вызывающий обязуется больше их не менять
+    FrozenTabulatedFunction(double[] xValues, double[] yValues, int pointsCount, boolean uniformGrid, double gridStep) {
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.pointsCount = pointsCount;
+        this.uniformGrid = uniformGrid;
+        this.gridStep = gridStep;
+    }
+
+    public static FrozenTabulatedFunction copyOf(TabulatedFunction function) {
+        if (function instanceof FrozenTabulatedFunction) {
+            return (FrozenTabulatedFunction) function;
+        }
+
+        int count = function.getPointsCount();
+        double[] xValues = new double[count];
+        double[] yValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            xValues[i] = function.getPointX(i);
+            yValues[i] = function.getPointY(i);
+        }
+
+        double step = (xValues[count - 1] - xValues[0]) / (count - 1);
+        boolean uniform = step > 0;
+        for (int i = 1; i < count - 1 && uniform; i++) {
+            uniform = Math.abs(xValues[i] - (xValues[0] + step * i)) <= step * GRID_TOLERANCE;
+        }
+        return new FrozenTabulatedFunction(xValues, yValues, count, uniform, step);
+    }
+
+    // Изменяемая копия за O(1): массивы общие, и DoubleArrayTabulatedFunction скопирует их при первом изменении
+    public DoubleArrayTabulatedFunction mutableCopy() {
+        return DoubleArrayTabulatedFunction.sharing(xValues, yValues, pointsCount, uniformGrid, gridStep);
+    }
+
+    @Override
+    public FrozenTabulatedFunction freeze() {
+        return this;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        return xValues[0];
+    }
+
+    public double getRightDomainBorder() {
+        return xValues[pointsCount - 1];
+    }
+
+    public double getFunctionValue(double x) {
+        return IntervalLookup.valueAt(xValues, yValues, pointsCount, uniformGrid, gridStep, x, PROBES);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        IntervalLookup.valuesAt(xValues, yValues, pointsCount, uniformGrid, gridStep, xs, out, PROBES);
+    }
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    // FunctionPoint изменяем, поэтому точка всё равно создаётся заново; координаты без копий дают getPointX и getPointY
+    public FunctionPoint getPoint(int index) {
+        checkIndex(index);
+        return new FunctionPoint(xValues[index], yValues[index]);
+    }
+
+    public double getPointX(int index) {
+        checkIndex(index);
+        return xValues[index];
+    }
+
+    public double getPointY(int index) {
+        checkIndex(index);
+        return yValues[index];
+    }
+
+    public void setPoint(int index, FunctionPoint point) {
+        throw new UnsupportedOperationException("Замороженную функцию нельзя изменить");
+    }
+
+    public void setPointX(int index, double x) {
+        throw new UnsupportedOperationException("Замороженную функцию нельзя изменить");
+    }
+
+    public void setPointY(int index, double y) {
+        throw new UnsupportedOperationException("Замороженную функцию нельзя изменить");
+    }
+
+    public void addPoint(FunctionPoint point) {
+        throw new UnsupportedOperationException("Замороженную функцию нельзя изменить");
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Замороженную функцию нельзя изменить");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int i = 0; i < pointsCount; i++) {
+            sb.append("(").append(xValues[i]).append("; ").append(yValues[i]).append(")");
+            if (i < pointsCount - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TabulatedFunction)) return false;
+
+        TabulatedFunction that = (TabulatedFunction) o;
+
+        if (pointsCount != that.getPointsCount()) return false;
+
+        for (int i = 0; i < pointsCount; i++) {
+            if (Math.abs(xValues[i] - that.getPointX(i)) >= EPSILON ||
+                    Math.abs(yValues[i] - that.getPointY(i)) >= EPSILON) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = pointsCount;
+        for (int i = 0; i < pointsCount; i++) {
+            long xBits = Double.doubleToLongBits(xValues[i]);
+            long yBits = Double.doubleToLongBits(yValues[i]);
+            result ^= (int)(xBits ^ (xBits >>> 32)) ^ (int)(yBits ^ (yBits >>> 32));
+        }
+        return result;
+    }
+
+    // Копия неизменяемого объекта может делить с ним массивы
+    @Override
+    public Object clone() {
+        return new FrozenTabulatedFunction(xValues, yValues, pointsCount, uniformGrid, gridStep);
+    }
+
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        return new Iterator<FunctionPoint>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return currentIndex < pointsCount;
+            }
+
+            @Override
+            public FunctionPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Нет следующего элемента");
+                }
+                FunctionPoint point = new FunctionPoint(xValues[currentIndex], yValues[currentIndex]);
+                currentIndex++;
+                return point;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Удаление не поддерживается");
+            }
+        };
+    }
+}
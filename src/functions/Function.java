@@ -4,4 +4,14 @@ public interface Function {
     double getLeftDomainBorder();
     double getRightDomainBorder();
     double getFunctionValue(double x);
+
+    // Вычисляет значения во всех точках xs и записывает их в out; out может совпадать с xs
+    default void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = getFunctionValue(xs[i]);
+        }
+    }
 }
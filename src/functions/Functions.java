@@ -1,29 +1,95 @@
 package functions;
 
+import functions.cache.CachedFunction;
+import functions.cache.EvictionPolicy;
 import functions.meta.*;
+import functions.metrics.Metrics;
+import functions.metrics.Timer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public final class Functions {
+    // Время каждого вызова интегрирования; пишется, только если включён сбор метрик
+    private static final Timer INTEGRATE_TIMER = Metrics.timer("Functions.integrate", 1);
+    private static final Timer INTEGRATE_PARALLEL_TIMER = Metrics.timer("Functions.integrateParallel", 1);
+    private static final Timer INTEGRATE_ADAPTIVE_TIMER = Metrics.timer("Functions.integrateAdaptive", 1);
+
     private Functions() {
         throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
     }
 
+    // Построители упрощают дерево по ходу: тождественные сдвиг, растяжение и степень 1 опускаются,
+    // соседние Shift и Scale сливаются в один узел, а степень степени с целыми показателями - в одну степень.
+    // Слитые узлы считают то же самое с точностью до округления
     public static Function shift(Function f, double shiftX, double shiftY) {
+        if (shiftX == 0 && shiftY == 0 && !hasInvertedDomain(f)) {
+            return f;
+        }
+        if (f.getClass() == Shift.class) {
+            Shift inner = (Shift) f;
+            double fusedX = inner.getShiftX() + shiftX;
+            double fusedY = inner.getShiftY() + shiftY;
+            if (Double.isFinite(fusedX) && Double.isFinite(fusedY)) {
+                return shift(inner.getFunction(), fusedX, fusedY);
+            }
+        }
         return new Shift(f, shiftX, shiftY);
     }
 
+    // Растяжения сливаются, только если внутреннее растяжение по x положительно: иначе у него
+    // перевёрнута область определения, и слияние изменило бы результат
     public static Function scale(Function f, double scaleX, double scaleY) {
+        if (scaleX == 1 && scaleY == 1 && !hasInvertedDomain(f)) {
+            return f;
+        }
+        if (f.getClass() == Scale.class) {
+            Scale inner = (Scale) f;
+            double fusedX = inner.getScaleX() * scaleX;
+            double fusedY = inner.getScaleY() * scaleY;
+            if (inner.getScaleX() > 0 && Double.isFinite(fusedX) && Double.isFinite(fusedY)) {
+                return scale(inner.getFunction(), fusedX, fusedY);
+            }
+        }
         return new Scale(f, scaleX, scaleY);
     }
 
+    // (f^p)^q = f^(pq) для любых f только при целых p и q: например, (f^2)^0.5 - это |f|, а не f
     public static Function power(Function f, double power) {
+        if (power == 1) {
+            return f;
+        }
+        if (f.getClass() == Power.class) {
+            Power inner = (Power) f;
+            double fusedPower = inner.getPower() * power;
+            if (isInteger(inner.getPower()) && isInteger(power) && isInteger(fusedPower)) {
+                return power(inner.getFunction(), fusedPower);
+            }
+        }
         return new Power(f, power);
     }
 
+    // У Scale с отрицательным растяжением по x левая граница больше правой, и обёртка над ней
+    // всегда возвращает NaN; такую обёртку убирать нельзя
+    private static boolean hasInvertedDomain(Function f) {
+        return f.getLeftDomainBorder() > f.getRightDomainBorder();
+    }
+
+    private static boolean isInteger(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value);
+    }
+
     public static Function sum(Function f1, Function f2) {
         return new Sum(f1, f2);
     }
 
+    // f * f вычисляет f один раз. Mult проверяет область определения сам, а Power полагается на f,
+    // поэтому замена делается только для функций, определённых на всей прямой
     public static Function mult(Function f1, Function f2) {
+        if (f1 == f2 && f1.getLeftDomainBorder() == Double.NEGATIVE_INFINITY
+                && f1.getRightDomainBorder() == Double.POSITIVE_INFINITY) {
+            return power(f1, 2);
+        }
         return new Mult(f1, f2);
     }
 
@@ -31,7 +97,68 @@ public final class Functions {
         return new Composition(f1, f2);
     }
 
+    // Запоминает до maximumSize вычисленных значений; см. CachedFunction
+    public static CachedFunction cache(Function function, int maximumSize) {
+        return new CachedFunction(function, maximumSize);
+    }
+
+    public static CachedFunction cache(Function function, int maximumSize, EvictionPolicy policy) {
+        return new CachedFunction(function, maximumSize, policy);
+    }
+
+    // Дерево мета-функций, собранное в один вычислитель; значения совпадают с исходной функцией
+    public static Function compile(Function function) {
+        return FunctionCompiler.compile(function);
+    }
+
     public static double integrate(Function function, double left, double right, double step) {
+        checkIntegrationArguments(function, left, right, step);
+        long start = INTEGRATE_TIMER.start();
+
+        double integral = 0.0;
+        double compensation = 0.0;
+        double x = left;
+        double y = function.getFunctionValue(x);
+
+        do {
+            double xNext = Math.min(x + step, right);
+            double yNext = function.getFunctionValue(xNext);
+            double term = (y + yNext) * (xNext - x) / 2;
+
+            double sum = integral + term;
+            compensation += roundingError(integral, term, sum);
+            integral = sum;
+
+            x = xNext;
+            y = yNext;
+        } while (x < right);
+
+        INTEGRATE_TIMER.stop(start);
+        return integral + compensation;
+    }
+
+    public static double integrateParallel(Function function, double left, double right, double step) {
+        return integrateParallel(function, left, right, step, ForkJoinPool.commonPool());
+    }
+
+    // Результат не зависит от числа потоков: разбиение на части и порядок их сложения определяются только числом шагов
+    public static double integrateParallel(Function function, double left, double right, double step, ForkJoinPool pool) {
+        checkIntegrationArguments(function, left, right, step);
+
+        long start = INTEGRATE_PARALLEL_TIMER.start();
+        long stepsCount = (long) Math.ceil((right - left) / step);
+        ParallelTrapezoid task = new ParallelTrapezoid(function, left, right, step, Math.max(stepsCount, 1));
+        double[] sum = stepsCount <= ParallelTrapezoid.SEQUENTIAL_STEPS ? task.compute() : pool.invoke(task);
+        INTEGRATE_PARALLEL_TIMER.stop(start);
+        return sum[0] + sum[1];
+    }
+
+    // Суммирование Ноймайера: погрешность округления при вычислении sum = a + b
+    private static double roundingError(double a, double b, double sum) {
+        return Math.abs(a) >= Math.abs(b) ? (a - sum) + b : (b - sum) + a;
+    }
+
+    private static void checkIntegrationArguments(Function function, double left, double right, double step) {
         if (left < function.getLeftDomainBorder() || right > function.getRightDomainBorder()) {
             throw new IllegalArgumentException("Интервал интегрирования выходит за границы области определения функции");
         }
@@ -41,25 +168,144 @@ public final class Functions {
         if (left >= right) {
             throw new IllegalArgumentException("Левая граница должна быть меньше правой");
         }
+    }
 
-        double integral = 0.0;
-        double x = left;
+    // Сумма трапеций на шагах [fromStep, toStep) в виде пары {сумма, компенсация}
+    // ForkJoinTask сериализуем, но задачи не покидают пул, поэтому функция в сериализованную форму не входит
+    private static class ParallelTrapezoid extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        static final long SEQUENTIAL_STEPS = 1 << 14;
 
-        double xNext = Math.min(x + step, right);
-        double y1 = function.getFunctionValue(x);
-        double y2 = function.getFunctionValue(xNext);
-        integral += (y1 + y2) * (xNext - x) / 2;
+        private final transient Function function;
+        private final double left;
+        private final double right;
+        private final double step;
+        private final long fromStep;
+        private final long toStep;
+        private final long stepsCount;
 
-        x = xNext;
+        ParallelTrapezoid(Function function, double left, double right, double step, long stepsCount) {
+            this(function, left, right, step, 0, stepsCount, stepsCount);
+        }
 
-        while (x < right) {
-            xNext = Math.min(x + step, right);
-            y1 = function.getFunctionValue(x);
-            y2 = function.getFunctionValue(xNext);
-            integral += (y1 + y2) * (xNext - x) / 2;
-            x = xNext;
+        private ParallelTrapezoid(Function function, double left, double right, double step,
+                                  long fromStep, long toStep, long stepsCount) {
+            this.function = function;
+            this.left = left;
+            this.right = right;
+            this.step = step;
+            this.fromStep = fromStep;
+            this.toStep = toStep;
+            this.stepsCount = stepsCount;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (toStep - fromStep <= SEQUENTIAL_STEPS) {
+                return integrateChunk();
+            }
+
+            long middleStep = (fromStep + toStep) >>> 1;
+            ParallelTrapezoid leftPart = new ParallelTrapezoid(function, left, right, step, fromStep, middleStep, stepsCount);
+            ParallelTrapezoid rightPart = new ParallelTrapezoid(function, left, right, step, middleStep, toStep, stepsCount);
+            leftPart.fork();
+            double[] rightSum = rightPart.compute();
+            double[] leftSum = leftPart.join();
+
+            double sum = leftSum[0] + rightSum[0];
+            double compensation = leftSum[1] + rightSum[1] + roundingError(leftSum[0], rightSum[0], sum);
+            return new double[]{sum, compensation};
         }
 
-        return integral;
+        private double[] integrateChunk() {
+            double integral = 0.0;
+            double compensation = 0.0;
+            double x = nodeX(fromStep);
+            double y = function.getFunctionValue(x);
+
+            for (long i = fromStep + 1; i <= toStep; i++) {
+                double xNext = nodeX(i);
+                double yNext = function.getFunctionValue(xNext);
+                double term = (y + yNext) * (xNext - x) / 2;
+
+                double sum = integral + term;
+                compensation += roundingError(integral, term, sum);
+                integral = sum;
+
+                x = xNext;
+                y = yNext;
+            }
+
+            return new double[]{integral, compensation};
+        }
+
+        private double nodeX(long index) {
+            return index >= stepsCount ? right : Math.min(left + index * step, right);
+        }
+    }
+
+    public static IntegrationResult integrateAdaptive(Function function, double left, double right, double tolerance) {
+        if (left < function.getLeftDomainBorder() || right > function.getRightDomainBorder()) {
+            throw new IllegalArgumentException("Интервал интегрирования выходит за границы области определения функции");
+        }
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("Требуемая точность должна быть положительной");
+        }
+        if (left >= right) {
+            throw new IllegalArgumentException("Левая граница должна быть меньше правой");
+        }
+
+        long start = INTEGRATE_ADAPTIVE_TIMER.start();
+        AdaptiveSimpson simpson = new AdaptiveSimpson(function);
+        double middle = (left + right) / 2;
+        double yLeft = simpson.evaluate(left);
+        double yMiddle = simpson.evaluate(middle);
+        double yRight = simpson.evaluate(right);
+        double whole = (right - left) / 6 * (yLeft + 4 * yMiddle + yRight);
+
+        double value = simpson.integrate(left, right, yLeft, yMiddle, yRight, whole, tolerance, 0);
+        INTEGRATE_ADAPTIVE_TIMER.stop(start);
+        return new IntegrationResult(value, simpson.errorEstimate, simpson.evaluationsCount);
+    }
+
+    // Адаптивный метод Симпсона: отрезок делится пополам, пока оценка Рунге не уложится в допуск
+    private static class AdaptiveSimpson {
+        private static final int MAX_DEPTH = 50;
+
+        private final Function function;
+        private long evaluationsCount;
+        private double errorEstimate;
+
+        AdaptiveSimpson(Function function) {
+            this.function = function;
+        }
+
+        double evaluate(double x) {
+            evaluationsCount++;
+            return function.getFunctionValue(x);
+        }
+
+        double integrate(double left, double right, double yLeft, double yMiddle, double yRight,
+                         double whole, double tolerance, int depth) {
+            double middle = (left + right) / 2;
+            double leftMiddle = (left + middle) / 2;
+            double rightMiddle = (middle + right) / 2;
+            double yLeftMiddle = evaluate(leftMiddle);
+            double yRightMiddle = evaluate(rightMiddle);
+
+            double leftPart = (middle - left) / 6 * (yLeft + 4 * yLeftMiddle + yMiddle);
+            double rightPart = (right - middle) / 6 * (yMiddle + 4 * yRightMiddle + yRight);
+            double delta = leftPart + rightPart - whole;
+
+            // Условие записано через отрицание, чтобы NaN не вызывал бесконечного деления
+            if (depth >= MAX_DEPTH || leftMiddle <= left || rightMiddle >= right ||
+                    !(Math.abs(delta) > 15 * tolerance)) {
+                errorEstimate += Math.abs(delta) / 15;
+                return leftPart + rightPart + delta / 15;
+            }
+
+            return integrate(left, middle, yLeft, yLeftMiddle, yMiddle, leftPart, tolerance / 2, depth + 1) +
+                    integrate(middle, right, yMiddle, yRightMiddle, yRight, rightPart, tolerance / 2, depth + 1);
+        }
     }
 }
\ No newline at end of file
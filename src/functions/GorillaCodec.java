@@ -0,0 +1,254 @@
+package functions;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Потоковое сжатие координат в духе Gorilla (Pelkonen и др., 2015). Точки пишутся подряд битовым потоком.
+// X: разность разностей двоичных представлений соседних x в zigzag-кодировании, для равномерной сетки
+// это почти всегда 0 или 1-2 ulp, то есть 1-6 бит. Y: XOR с предыдущим значением, от которого хранятся
+// только значащие биты между ведущими и хвостовыми нулями; совпадающее значение занимает 1 бит.
+// Сжатие без потерь: раскодированные значения побитово равны исходным, включая NaN и -0.0
+final class GorillaCodec {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private GorillaCodec() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    static final class Encoder {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long pending;
+        private int pendingBits;
+
+        private int count;
+        private long previousX;
+        private long previousDelta;
+        private long previousY;
+        private int leadingZeros = Integer.MAX_VALUE;
+        private int trailingZeros;
+
+        Encoder(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(double x, double y) throws IOException {
+            long xBits = Double.doubleToRawLongBits(x);
+            long yBits = Double.doubleToRawLongBits(y);
+
+            if (count == 0) {
+                writeLong(xBits);
+                writeLong(yBits);
+            } else {
+                long delta = xBits - previousX;
+                writeDeltaOfDelta(delta - previousDelta);
+                previousDelta = delta;
+                writeXor(yBits ^ previousY);
+            }
+
+            previousX = xBits;
+            previousY = yBits;
+            count++;
+        }
+
+        // Корзины по размеру zigzag-значения: 0 -> "0", до 4 бит -> "10", до 9 -> "110", до 16 -> "1110", иначе "1111" + 64 бита.
+        // Первая корзина рассчитана на шум округления в 1-2 ulp, а не на метки времени, как в исходном Gorilla
+        private void writeDeltaOfDelta(long deltaOfDelta) throws IOException {
+            long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+            if (zigzag == 0) {
+                writeBits(0, 1);
+            } else if (zigzag >>> 4 == 0) {
+                writeBits(0b10L << 4 | zigzag, 6);
+            } else if (zigzag >>> 9 == 0) {
+                writeBits(0b110L << 9 | zigzag, 12);
+            } else if (zigzag >>> 16 == 0) {
+                writeBits(0b1110L << 16 | zigzag, 20);
+            } else {
+                writeBits(0b1111, 4);
+                writeLong(zigzag);
+            }
+        }
+
+        // "0" - значение совпало; "10" - значащие биты помещаются в прежнее окно; "11" + 6 бит ведущих нулей
+        // + 6 бит (длина - 1) + значащие биты - новое окно
+        private void writeXor(long xor) throws IOException {
+            if (xor == 0) {
+                writeBits(0, 1);
+                return;
+            }
+
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= leadingZeros && trailing >= trailingZeros) {
+                writeBits(0b10, 2);
+                writeLongBits(xor >>> trailingZeros, 64 - leadingZeros - trailingZeros);
+                return;
+            }
+
+            int length = 64 - leading - trailing;
+            writeBits((0b11L << 12) | ((long) leading << 6) | (length - 1), 14);
+            writeLongBits(xor >>> trailing, length);
+            leadingZeros = leading;
+            trailingZeros = trailing;
+        }
+
+        private void writeLong(long value) throws IOException {
+            writeBits(value >>> 32, 32);
+            writeBits(value, 32);
+        }
+
+        private void writeLongBits(long value, int bits) throws IOException {
+            if (bits > 32) {
+                writeBits(value >>> 32, bits - 32);
+                writeBits(value, 32);
+            } else {
+                writeBits(value, bits);
+            }
+        }
+
+        // В pending меньше 32 бит, поэтому после добавления до 32 новых всё помещается в long
+        private void writeBits(long value, int bits) throws IOException {
+            pending = (pending << bits) | (value & (-1L >>> (64 - bits)));
+            pendingBits += bits;
+            if (pendingBits >= 32) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    flush();
+                }
+                pendingBits -= 32;
+                buffer.putInt((int) (pending >>> pendingBits));
+            }
+        }
+
+        // Дописывает неполный байт нулями и отдаёт всё в канал
+        void finish() throws IOException {
+            while (pendingBits > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int shift = pendingBits - 8;
+                buffer.put((byte) (shift >= 0 ? pending >>> shift : pending << -shift));
+                pendingBits = Math.max(shift, 0);
+            }
+            flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    static final class Decoder {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long pending;
+        private int pendingBits;
+
+        private int count;
+        private long previousX;
+        private long previousDelta;
+        private long previousY;
+        private int leadingZeros;
+        private int trailingZeros;
+
+        Decoder(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        void read(double[] xValues, double[] yValues, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                long xBits;
+                long yBits;
+                if (count == 0) {
+                    xBits = readLong();
+                    yBits = readLong();
+                } else {
+                    long delta = previousDelta + readDeltaOfDelta();
+                    xBits = previousX + delta;
+                    previousDelta = delta;
+                    yBits = readXor() ^ previousY;
+                }
+
+                previousX = xBits;
+                previousY = yBits;
+                count++;
+
+                xValues[i] = Double.longBitsToDouble(xBits);
+                yValues[i] = Double.longBitsToDouble(yBits);
+            }
+        }
+
+        private long readDeltaOfDelta() throws IOException {
+            long zigzag;
+            if (readBits(1) == 0) {
+                return 0;
+            } else if (readBits(1) == 0) {
+                zigzag = readBits(4);
+            } else if (readBits(1) == 0) {
+                zigzag = readBits(9);
+            } else if (readBits(1) == 0) {
+                zigzag = readBits(16);
+            } else {
+                zigzag = readLong();
+            }
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private long readXor() throws IOException {
+            if (readBits(1) == 0) {
+                return 0;
+            }
+            if (readBits(1) != 0) {
+                long window = readBits(12);
+                leadingZeros = (int) (window >>> 6);
+                trailingZeros = 64 - leadingZeros - ((int) (window & 63) + 1);
+            }
+            return readLongBits(64 - leadingZeros - trailingZeros) << trailingZeros;
+        }
+
+        private long readLong() throws IOException {
+            return (readBits(32) << 32) | readBits(32);
+        }
+
+        private long readLongBits(int bits) throws IOException {
+            if (bits > 32) {
+                return (readBits(bits - 32) << 32) | readBits(32);
+            }
+            return readBits(bits);
+        }
+
+        private long readBits(int bits) throws IOException {
+            while (pendingBits < bits) {
+                if (pendingBits <= 32 && buffer.remaining() >= Integer.BYTES) {
+                    pending = (pending << 32) | (buffer.getInt() & 0xFFFFFFFFL);
+                    pendingBits += 32;
+                } else {
+                    pending = (pending << 8) | (nextByte() & 0xFFL);
+                    pendingBits += 8;
+                }
+            }
+            pendingBits -= bits;
+            return (pending >>> pendingBits) & (-1L >>> (64 - bits));
+        }
+
+        private byte nextByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                while (buffer.position() == 0) {
+                    if (channel.read(buffer) < 0) {
+                        throw new EOFException("Неожиданный конец сжатых данных табулированной функции");
+                    }
+                }
+                buffer.flip();
+            }
+            return buffer.get();
+        }
+    }
+}
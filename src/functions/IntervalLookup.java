@@ -0,0 +1,188 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+// Поиск интервала и линейная интерполяция по упорядоченным координатам, общие для табулированных функций
+// с массивами xValues/yValues (DoubleArray, Frozen, Concurrent) и для MappedTabulatedFunction, которая
+// читает точки через Coordinates. Индекс интервала сначала угадывается по формуле равномерной сетки
+// и проверяется по соседним точкам, иначе ищется бинарным поиском. Пакетное вычисление по возрастающим
+// аргументам сдвигает курсор вперёд, но не дальше чем на CURSOR_WALK_LIMIT точек: дальше быстрее искать заново
+final class IntervalLookup {
+    static final double EPSILON = 1e-10;
+    private static final int CURSOR_WALK_LIMIT = 8;
+
+    private IntervalLookup() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    // Точки хранилища, которое нельзя передать массивами
+    interface Coordinates {
+        double x(int index);
+        double y(int index);
+    }
+
+    // Значение в x или NaN за пределами [x(0), x(count - 1)]
+    static double valueAt(double[] xValues, double[] yValues, int count, boolean uniformGrid, double gridStep,
+                          double x, Log2Histogram probes) {
+        if (x < xValues[0] - EPSILON || x > xValues[count - 1] + EPSILON) {
+            return Double.NaN;
+        }
+        int index = findIntervalIndex(xValues, count, uniformGrid, gridStep, x, probes);
+        return interpolate(xValues[index], yValues[index], xValues[index + 1], yValues[index + 1], x);
+    }
+
+    static void valuesAt(double[] xValues, double[] yValues, int count, boolean uniformGrid, double gridStep,
+                         double[] xs, double[] out, Log2Histogram probes) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = xValues[0] - EPSILON;
+        double rightX = xValues[count - 1] + EPSILON;
+        double previousX = Double.NEGATIVE_INFINITY;
+        int index = 0;
+
+        for (int i = 0; i < xs.length; i++) {
+            double x = xs[i];
+            if (x < leftX || x > rightX) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            if (!(x >= previousX) || (index + CURSOR_WALK_LIMIT < count && xValues[index + CURSOR_WALK_LIMIT] <= x)) {
+                index = findIntervalIndex(xValues, count, uniformGrid, gridStep, x, probes);
+            } else {
+                while (index < count - 2 && xValues[index + 1] <= x) {
+                    index++;
+                }
+            }
+            previousX = x;
+
+            out[i] = interpolate(xValues[index], yValues[index], xValues[index + 1], yValues[index + 1], x);
+        }
+    }
+
+    // Индекс левого конца отрезка [x(i), x(i+1)], содержащего x (от 0 до count - 2)
+    static int findIntervalIndex(double[] xValues, int count, boolean uniformGrid, double gridStep,
+                                 double x, Log2Histogram probes) {
+        if (uniformGrid) {
+            int index = guessIndex(x, xValues[0], gridStep, count);
+            if ((index == 0 || xValues[index] <= x) &&
+                    (index == count - 2 || x < xValues[index + 1])) {
+                recordProbes(probes, 1);
+                return index;
+            }
+        }
+
+        int low = 0;
+        int high = count - 1;
+        int probesCount = uniformGrid ? 1 : 0;
+
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            probesCount++;
+            if (xValues[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        recordProbes(probes, probesCount);
+        return low;
+    }
+
+    static double valueAt(Coordinates points, int count, boolean uniformGrid, double gridStep,
+                          double x, Log2Histogram probes) {
+        if (x < points.x(0) - EPSILON || x > points.x(count - 1) + EPSILON) {
+            return Double.NaN;
+        }
+        int index = findIntervalIndex(points, count, uniformGrid, gridStep, x, probes);
+        return interpolate(points.x(index), points.y(index), points.x(index + 1), points.y(index + 1), x);
+    }
+
+    static void valuesAt(Coordinates points, int count, boolean uniformGrid, double gridStep,
+                         double[] xs, double[] out, Log2Histogram probes) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = points.x(0) - EPSILON;
+        double rightX = points.x(count - 1) + EPSILON;
+        double previousX = Double.NEGATIVE_INFINITY;
+        int index = 0;
+
+        for (int i = 0; i < xs.length; i++) {
+            double x = xs[i];
+            if (x < leftX || x > rightX) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            if (!(x >= previousX) || (index + CURSOR_WALK_LIMIT < count && points.x(index + CURSOR_WALK_LIMIT) <= x)) {
+                index = findIntervalIndex(points, count, uniformGrid, gridStep, x, probes);
+            } else {
+                while (index < count - 2 && points.x(index + 1) <= x) {
+                    index++;
+                }
+            }
+            previousX = x;
+
+            out[i] = interpolate(points.x(index), points.y(index), points.x(index + 1), points.y(index + 1), x);
+        }
+    }
+
+    static int findIntervalIndex(Coordinates points, int count, boolean uniformGrid, double gridStep,
+                                 double x, Log2Histogram probes) {
+        if (uniformGrid) {
+            int index = guessIndex(x, points.x(0), gridStep, count);
+            if ((index == 0 || points.x(index) <= x) &&
+                    (index == count - 2 || x < points.x(index + 1))) {
+                recordProbes(probes, 1);
+                return index;
+            }
+        }
+
+        int low = 0;
+        int high = count - 1;
+        int probesCount = uniformGrid ? 1 : 0;
+
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            probesCount++;
+            if (points.x(mid) <= x) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        recordProbes(probes, probesCount);
+        return low;
+    }
+
+    private static int guessIndex(double x, double leftX, double gridStep, int count) {
+        int index = (int) ((x - leftX) / gridStep);
+        if (index < 0) {
+            return 0;
+        }
+        return Math.min(index, count - 2);
+    }
+
+    private static double interpolate(double x1, double y1, double x2, double y2, double x) {
+        if (Math.abs(x1 - x) < EPSILON) {
+            return y1;
+        }
+        if (Math.abs(x2 - x) < EPSILON) {
+            return y2;
+        }
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    private static void recordProbes(Log2Histogram probes, int count) {
+        if (LookupProbes.ENABLED) {
+            LookupProbes.record(probes, count);
+        }
+    }
+}
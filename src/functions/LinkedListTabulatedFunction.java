@@ -1,8 +1,13 @@
 package functions;
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
 import java.io.*;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+// Точки в двусвязном кольцевом списке с заглавным узлом. clone() делит узлы с копией до первого изменения,
+// поэтому clone() нельзя вызывать одновременно с изменением исходной функции в другом потоке
 public class LinkedListTabulatedFunction implements TabulatedFunction, Serializable, Externalizable {
     private static final long serialVersionUID = 1L;
     private class FunctionNode implements Serializable  {
@@ -24,11 +29,23 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
         }
     }
 
+    // Позиция последнего поиска по значению X; действительна, пока список не менялся структурно
+    private static class LookupCursor {
+        private FunctionNode node;
+        private int modificationCount;
+    }
+
     private FunctionNode head;
     private FunctionNode currentNode;
     private int currentIndex;
     private int pointsCount;
+    // Цепочка узлов общая с клоном и перестраивается перед первым изменением
+    private transient CopyOnWriteMark nodesMark = new CopyOnWriteMark();
+    private transient int modificationCount;
+    private transient LookupCursor sharedCursor = new LookupCursor();
+    private transient ThreadLocal<LookupCursor> threadCursors;
     private static final double EPSILON = 1e-10;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(LinkedListTabulatedFunction.class);
 
 
     public LinkedListTabulatedFunction(double leftX, double rightX, int pointsCount) {
@@ -73,12 +90,44 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
             addNodeToTail().point = new FunctionPoint(point);
         }
     }
+
+    public LinkedListTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        if (xValues.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < xValues.length; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        initializeList();
+        for (int i = 0; i < xValues.length; i++) {
+            addNodeToTail().point = new FunctionPoint(xValues[i], yValues[i]);
+        }
+    }
     public LinkedListTabulatedFunction() {
         initializeList();
         addNodeToTail().point = new FunctionPoint(0, 0);
         addNodeToTail().point = new FunctionPoint(1, 1);
     }
 
+    // Копия делит узлы с оригиналом, пока одна из функций их не изменит
+    private LinkedListTabulatedFunction(LinkedListTabulatedFunction function) {
+        CopyOnWriteMark mark = function.nodesMark;
+        mark.shared = true;
+        this.head = function.head;
+        this.pointsCount = function.pointsCount;
+        this.currentNode = head;
+        this.currentIndex = -1;
+        this.nodesMark = mark;
+        setThreadConfinedLookup(function.isThreadConfinedLookup());
+    }
+
     private void initializeList() {
         head = new FunctionNode(null);
         head.prev = head;
@@ -86,6 +135,18 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
         pointsCount = 0;
         currentNode = head;
         currentIndex = -1;
+        nodesMark = new CopyOnWriteMark();
+        modificationCount++;
+    }
+
+    private void ensureExclusive() {
+        if (nodesMark.shared) {
+            FunctionNode source = head;
+            initializeList();
+            for (FunctionNode node = source.next; node != source; node = node.next) {
+                addNodeToTail().point = new FunctionPoint(node.point);
+            }
+        }
     }
 
     private FunctionNode getNodeByIndex(int index) {
@@ -116,6 +177,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
         head.prev.next = newNode;
         head.prev = newNode;
         pointsCount++;
+        modificationCount++;
         return newNode;
     }
 
@@ -132,6 +194,9 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
         nextNode.prev = newNode;
 
         pointsCount++;
+        modificationCount++;
+        currentNode = newNode;
+        currentIndex = index;
         return newNode;
     }
 
@@ -143,11 +208,13 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
             throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
         }
 
+        ensureExclusive();
         FunctionNode nodeToDelete = getNodeByIndex(index);
         nodeToDelete.prev.next = nodeToDelete.next;
         nodeToDelete.next.prev = nodeToDelete.prev;
 
         pointsCount--;
+        modificationCount++;
         currentNode = head;
         currentIndex = -1;
 
@@ -167,28 +234,86 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
             return Double.NaN;
         }
 
-        FunctionNode node = head.next;
-        while (node != head) {
-            if (Math.abs(node.point.getX() - x) < EPSILON) {
-                return node.point.getY();
-            }
+        LookupCursor cursor = threadCursors != null ? threadCursors.get() : sharedCursor;
+        FunctionNode node = cursor.node;
+        if (node == null || cursor.modificationCount != modificationCount) {
+            node = head.next;
+        }
+
+        node = findIntervalNode(node, x);
+        cursor.node = node;
+        cursor.modificationCount = modificationCount;
+        return interpolate(node, x);
+    }
+
+    // Узел левого конца отрезка, содержащего x; поиск идет от start вперед или назад
+    private FunctionNode findIntervalNode(FunctionNode start, double x) {
+        FunctionNode lastInterval = head.prev.prev;
+        FunctionNode node = start;
+        int probes = 1;
+
+        while (node != lastInterval && node.next.point.getX() <= x) {
             node = node.next;
+            probes++;
+        }
+        while (node != head.next && node.point.getX() > x) {
+            node = node.prev;
+            probes++;
         }
 
-        node = head.next;
-        while (node != head && node.next != head) {
-            double x1 = node.point.getX();
-            double x2 = node.next.point.getX();
-
-            if (x >= x1 - EPSILON && x <= x2 + EPSILON) {
-                double y1 = node.point.getY();
-                double y2 = node.next.point.getY();
-                return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+        if (LookupProbes.ENABLED) {
+            LookupProbes.record(PROBES, probes);
+        }
+        return node;
+    }
+
+    // В режиме привязки к потокам каждый читающий поток ведет собственный курсор поиска
+    public void setThreadConfinedLookup(boolean threadConfined) {
+        threadCursors = threadConfined ? ThreadLocal.withInitial(LookupCursor::new) : null;
+    }
+
+    public boolean isThreadConfinedLookup() {
+        return threadCursors != null;
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = getLeftDomainBorder() - EPSILON;
+        double rightX = getRightDomainBorder() + EPSILON;
+        FunctionNode node = head.next;
+
+        for (int i = 0; i < xs.length; i++) {
+            double x = xs[i];
+            if (x < leftX || x > rightX) {
+                out[i] = Double.NaN;
+                continue;
             }
-            node = node.next;
+
+            node = findIntervalNode(node, x);
+            out[i] = interpolate(node, x);
+        }
+    }
+
+    // Значение на отрезке между node и node.next
+    private double interpolate(FunctionNode node, double x) {
+        FunctionPoint left = node.point;
+        FunctionPoint right = node.next.point;
+
+        if (Math.abs(left.getX() - x) < EPSILON) {
+            return left.getY();
+        }
+        if (Math.abs(right.getX() - x) < EPSILON) {
+            return right.getY();
         }
 
-        return Double.NaN;
+        double x1 = left.getX();
+        double x2 = right.getX();
+        double y1 = left.getY();
+        double y2 = right.getY();
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
     }
 
     public int getPointsCount() {
@@ -200,6 +325,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
     }
 
     public void setPoint(int index, FunctionPoint point) throws InappropriateFunctionPointException {
+        ensureExclusive();
         FunctionNode node = getNodeByIndex(index);
 
         if ((index > 0 && point.getX() <= node.prev.point.getX() + EPSILON) ||
@@ -215,6 +341,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
     }
 
     public void setPointX(int index, double x) throws InappropriateFunctionPointException {
+        ensureExclusive();
         FunctionNode node = getNodeByIndex(index);
 
         if ((index > 0 && x <= node.prev.point.getX() + EPSILON) ||
@@ -230,6 +357,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
     }
 
     public void setPointY(int index, double y) {
+        ensureExclusive();
         getNodeByIndex(index).point.setY(y);
     }
 
@@ -253,6 +381,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
             node = node.next;
         }
 
+        ensureExclusive();
         FunctionNode newNode = addNodeByIndex(pos);
         newNode.point = new FunctionPoint(point);
     }
@@ -344,22 +473,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
 
     @Override
     public Object clone() {
-        LinkedListTabulatedFunction cloned = new LinkedListTabulatedFunction();
-        cloned.initializeList();
-
-        FunctionNode node = head.next;
-        while (node != head) {
-            FunctionNode newNode = new FunctionNode((FunctionPoint) node.point.clone());
-            newNode.prev = cloned.head.prev;
-            newNode.next = cloned.head;
-            cloned.head.prev.next = newNode;
-            cloned.head.prev = newNode;
-            cloned.pointsCount++;
-
-            node = node.next;
-        }
-
-        return cloned;
+        return new LinkedListTabulatedFunction(this);
     }
     @Override
     public Iterator<FunctionPoint> iterator() {
@@ -402,5 +516,10 @@ public class LinkedListTabulatedFunction implements TabulatedFunction, Serializa
         public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
             return new LinkedListTabulatedFunction(points);
         }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+            return new LinkedListTabulatedFunction(xValues, yValues);
+        }
     }
 }
@@ -0,0 +1,250 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Табулированная функция только для чтения поверх файла в двоичном формате outputTabulatedFunction
+// (с заголовком или в старом формате), отображённого в память: точки читаются прямо из страничного кэша
+public class MappedTabulatedFunction implements TabulatedFunction, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(MappedTabulatedFunction.class);
+    // Один сегмент отображения - не больше 2^26 точек, чтобы обойти ограничение MappedByteBuffer в 2 ГиБ
+    private static final int SEGMENT_SHIFT = 26;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final transient DoubleBuffer[] xSegments;
+    private final transient DoubleBuffer[] ySegments;
+    // Для пар (x, y) шаг между точками - 2 значения и y сдвинут на 1, для столбцов - 1 и 0
+    private final int stride;
+    private final int yOffset;
+    private final int pointsCount;
+    // Сетку не проверяем заранее (это потребовало бы прочитать весь файл): индекс угадывается
+    // по среднему шагу и проверяется по соседним точкам, а при промахе ищется бинарным поиском
+    private final double gridStep;
+    private final transient IntervalLookup.Coordinates coordinates = new IntervalLookup.Coordinates() {
+        @Override
+        public double x(int index) {
+            return MappedTabulatedFunction.this.x(index);
+        }
+
+        @Override
+        public double y(int index) {
+            return MappedTabulatedFunction.this.y(index);
+        }
+    };
+
+    public MappedTabulatedFunction(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BinaryTabulatedFormat.Header header = BinaryTabulatedFormat.readHeader(channel);
+            if (header.isCompressed()) {
+                throw new IllegalArgumentException("Сжатый файл нельзя отобразить в память, его нужно прочитать inputTabulatedFunction");
+            }
+            pointsCount = header.pointsCount;
+            if (pointsCount < 2) {
+                throw new IllegalArgumentException("Количество точек должно быть не менее 2");
+            }
+            if (channel.size() < header.dataOffset + 2L * Double.BYTES * pointsCount) {
+                throw new IllegalArgumentException("Файл короче, чем требует количество точек " + pointsCount);
+            }
+
+            if (header.isColumnar()) {
+                stride = 1;
+                yOffset = 0;
+                xSegments = map(channel, header, header.dataOffset);
+                ySegments = map(channel, header, header.dataOffset + (long) Double.BYTES * pointsCount);
+            } else {
+                stride = 2;
+                yOffset = 1;
+                xSegments = map(channel, header, header.dataOffset);
+                ySegments = xSegments;
+            }
+            gridStep = (x(pointsCount - 1) - x(0)) / (pointsCount - 1);
+        }
+    }
+
+    private MappedTabulatedFunction(MappedTabulatedFunction function) {
+        this.xSegments = function.xSegments;
+        this.ySegments = function.ySegments;
+        this.stride = function.stride;
+        this.yOffset = function.yOffset;
+        this.pointsCount = function.pointsCount;
+        this.gridStep = function.gridStep;
+    }
+
+    private DoubleBuffer[] map(FileChannel channel, BinaryTabulatedFormat.Header header, long offset) throws IOException {
+        long pointBytes = (long) Double.BYTES * stride;
+        int segmentsCount = ((pointsCount - 1) >>> SEGMENT_SHIFT) + 1;
+        DoubleBuffer[] segments = new DoubleBuffer[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            long firstPoint = (long) i << SEGMENT_SHIFT;
+            long points = Math.min(1L << SEGMENT_SHIFT, pointsCount - firstPoint);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + firstPoint * pointBytes, points * pointBytes)
+                    .order(header.order).asDoubleBuffer();
+        }
+        return segments;
+    }
+
+    private double x(int index) {
+        return xSegments[index >>> SEGMENT_SHIFT].get((index & SEGMENT_MASK) * stride);
+    }
+
+    private double y(int index) {
+        return ySegments[index >>> SEGMENT_SHIFT].get((index & SEGMENT_MASK) * stride + yOffset);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        return x(0);
+    }
+
+    public double getRightDomainBorder() {
+        return x(pointsCount - 1);
+    }
+
+    public double getFunctionValue(double x) {
+        return IntervalLookup.valueAt(coordinates, pointsCount, true, gridStep, x, PROBES);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        IntervalLookup.valuesAt(coordinates, pointsCount, true, gridStep, xs, out, PROBES);
+    }
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        checkIndex(index);
+        return new FunctionPoint(x(index), y(index));
+    }
+
+    public void setPoint(int index, FunctionPoint point) {
+        throw new UnsupportedOperationException("Отображённая в память функция доступна только для чтения");
+    }
+
+    public double getPointX(int index) {
+        checkIndex(index);
+        return x(index);
+    }
+
+    public void setPointX(int index, double x) {
+        throw new UnsupportedOperationException("Отображённая в память функция доступна только для чтения");
+    }
+
+    public double getPointY(int index) {
+        checkIndex(index);
+        return y(index);
+    }
+
+    public void setPointY(int index, double y) {
+        throw new UnsupportedOperationException("Отображённая в память функция доступна только для чтения");
+    }
+
+    public void addPoint(FunctionPoint point) {
+        throw new UnsupportedOperationException("Отображённая в память функция доступна только для чтения");
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Отображённая в память функция доступна только для чтения");
+    }
+
+    // Отображение нельзя сериализовать, поэтому в поток попадает копия точек в куче
+    private Object writeReplace() throws ObjectStreamException {
+        FunctionPoint[] points = new FunctionPoint[pointsCount];
+        for (int i = 0; i < pointsCount; i++) {
+            points[i] = new FunctionPoint(x(i), y(i));
+        }
+        return new DoubleArrayTabulatedFunction(points);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int i = 0; i < pointsCount; i++) {
+            sb.append("(").append(x(i)).append("; ").append(y(i)).append(")");
+            if (i < pointsCount - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TabulatedFunction)) return false;
+
+        TabulatedFunction that = (TabulatedFunction) o;
+
+        if (this.getPointsCount() != that.getPointsCount()) return false;
+
+        for (int i = 0; i < pointsCount; i++) {
+            if (!getPoint(i).equals(that.getPoint(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = pointsCount;
+        for (int i = 0; i < pointsCount; i++) {
+            long xBits = Double.doubleToLongBits(x(i));
+            long yBits = Double.doubleToLongBits(y(i));
+            result ^= (int)(xBits ^ (xBits >>> 32)) ^ (int)(yBits ^ (yBits >>> 32));
+        }
+        return result;
+    }
+
+    // Содержимое неизменяемо, поэтому копия разделяет с оригиналом одно и то же отображение
+    @Override
+    public Object clone() {
+        return new MappedTabulatedFunction(this);
+    }
+
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        return new Iterator<FunctionPoint>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return currentIndex < pointsCount;
+            }
+
+            @Override
+            public FunctionPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Нет следующего элемента");
+                }
+                FunctionPoint point = new FunctionPoint(x(currentIndex), y(currentIndex));
+                currentIndex++;
+                return point;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Удаление не поддерживается");
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package functions;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+// Фабрика поверх публичных конструкторов класса табулированной функции.
+// Конструкторы ищутся один раз на класс и хранятся в ClassValue, а не запрашиваются при каждом создании
+final class ReflectiveTabulatedFunctionFactory implements TabulatedFunctionFactory {
+    private static final ClassValue<ReflectiveTabulatedFunctionFactory> FACTORIES = new ClassValue<ReflectiveTabulatedFunctionFactory>() {
+        @Override
+        protected ReflectiveTabulatedFunctionFactory computeValue(Class<?> type) {
+            return new ReflectiveTabulatedFunctionFactory(type);
+        }
+    };
+
+    private final Class<?> functionClass;
+    private final Constructor<?> countConstructor;
+    private final Constructor<?> valuesConstructor;
+    private final Constructor<?> pointsConstructor;
+    private final Constructor<?> coordinatesConstructor;
+
+    private ReflectiveTabulatedFunctionFactory(Class<?> functionClass) {
+        this.functionClass = functionClass;
+        this.countConstructor = findConstructor(double.class, double.class, int.class);
+        this.valuesConstructor = findConstructor(double.class, double.class, double[].class);
+        this.pointsConstructor = findConstructor(FunctionPoint[].class);
+        this.coordinatesConstructor = findConstructor(double[].class, double[].class);
+    }
+
+    static ReflectiveTabulatedFunctionFactory forClass(Class<? extends TabulatedFunction> functionClass) {
+        return FACTORIES.get(functionClass);
+    }
+
+    // Класс, не реализующий TabulatedFunction (передан через сырой тип Class), считается классом без конструкторов
+    private Constructor<?> findConstructor(Class<?>... parameterTypes) {
+        if (!TabulatedFunction.class.isAssignableFrom(functionClass)) {
+            return null;
+        }
+        try {
+            return functionClass.getConstructor(parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private TabulatedFunction newInstance(Constructor<?> constructor, Object... arguments) {
+        try {
+            if (constructor == null) {
+                throw new NoSuchMethodException("В классе " + functionClass.getName() + " нет подходящего публичного конструктора");
+            }
+            return (TabulatedFunction) constructor.newInstance(arguments);
+        } catch (NoSuchMethodException | IllegalAccessException |
+                 InstantiationException | InvocationTargetException e) {
+            throw new IllegalArgumentException("Ошибка при создании объекта через рефлексию", e);
+        }
+    }
+
+    @Override
+    public TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        return newInstance(countConstructor, leftX, rightX, pointsCount);
+    }
+
+    @Override
+    public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+        return newInstance(valuesConstructor, leftX, rightX, values);
+    }
+
+    @Override
+    public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
+        return newInstance(pointsConstructor, (Object) points);
+    }
+
+    // Если у класса есть конструктор от массивов координат, точки не упаковываются в FunctionPoint
+    @Override
+    public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+        if (coordinatesConstructor == null) {
+            return TabulatedFunctionFactory.super.createTabulatedFunction(xValues, yValues);
+        }
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        return newInstance(coordinatesConstructor, xValues, yValues);
+    }
+}
@@ -0,0 +1,539 @@
+package functions;
+
+import functions.metrics.Log2Histogram;
+import functions.metrics.LookupProbes;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Индексируемый список с пропусками: ссылка next[i] узла перескакивает через width[i] узлов нижнего уровня,
+// поэтому и поиск по X, и доступ по индексу выполняются за O(log n).
+// clone() делит узлы с копией до первого изменения, поэтому его нельзя вызывать одновременно
+// с изменением исходной функции в другом потоке
+public class SkipListTabulatedFunction implements TabulatedFunction, Serializable, Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_LEVEL = 32;
+    private static final double EPSILON = 1e-10;
+    private static final int CURSOR_WALK_LIMIT = 8;
+    private static final Log2Histogram PROBES = LookupProbes.forClass(SkipListTabulatedFunction.class);
+
+    private static class SkipNode {
+        private double x;
+        private double y;
+        private SkipNode previous;
+        private final SkipNode[] next;
+        private final int[] width;
+
+        SkipNode(double x, double y, int level) {
+            this.x = x;
+            this.y = y;
+            this.next = new SkipNode[level];
+            this.width = new int[level];
+        }
+    }
+
+    // Узлы сериализуются через writeExternal/readExternal
+    private transient SkipNode head;
+    private transient SkipNode tail;
+    private int level;
+    private int pointsCount;
+    private long randomState = 0x9E3779B97F4A7C15L;
+    // Узлы общие с клоном, и список перестраивается перед первым изменением
+    private transient CopyOnWriteMark nodesMark = new CopyOnWriteMark();
+
+    public SkipListTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        this(leftX, rightX, new double[checkPointsCount(pointsCount)]);
+    }
+
+    public SkipListTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница должна быть меньше правой");
+        }
+        checkPointsCount(values.length);
+
+        double[] xValues = new double[values.length];
+        double step = (rightX - leftX) / (values.length - 1);
+        for (int i = 0; i < values.length; i++) {
+            xValues[i] = leftX + step * i;
+        }
+        buildFromSorted(xValues, values, values.length);
+    }
+
+    public SkipListTabulatedFunction(FunctionPoint[] points) {
+        if (points.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < points.length; i++) {
+            if (points[i].getX() - points[i-1].getX() <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+
+        double[] xValues = new double[points.length];
+        double[] yValues = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xValues[i] = points[i].getX();
+            yValues[i] = points[i].getY();
+        }
+        buildFromSorted(xValues, yValues, points.length);
+    }
+
+    public SkipListTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+        if (xValues.length < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        for (int i = 1; i < xValues.length; i++) {
+            if (xValues[i] - xValues[i-1] <= -EPSILON) {
+                throw new IllegalArgumentException("Точки должны быть упорядочены по координате x");
+            }
+        }
+        buildFromSorted(xValues, yValues, xValues.length);
+    }
+
+    public SkipListTabulatedFunction() {
+        buildFromSorted(new double[]{0, 1}, new double[]{0, 1}, 2);
+    }
+
+    // Копия делит узлы с оригиналом, пока одна из функций их не изменит
+    private SkipListTabulatedFunction(SkipListTabulatedFunction function) {
+        CopyOnWriteMark mark = function.nodesMark;
+        mark.shared = true;
+        this.head = function.head;
+        this.tail = function.tail;
+        this.level = function.level;
+        this.pointsCount = function.pointsCount;
+        this.randomState = function.randomState;
+        this.nodesMark = mark;
+    }
+
+    private void ensureExclusive() {
+        if (nodesMark.shared) {
+            double[] xValues = new double[pointsCount];
+            double[] yValues = new double[pointsCount];
+            int index = 0;
+            for (SkipNode node = head.next[0]; node != tail; node = node.next[0]) {
+                xValues[index] = node.x;
+                yValues[index] = node.y;
+                index++;
+            }
+            buildFromSorted(xValues, yValues, pointsCount);
+        }
+    }
+
+    private static int checkPointsCount(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек должно быть не менее 2");
+        }
+        return pointsCount;
+    }
+
+    // Построение за O(n): каждый новый узел дописывается в конец всех своих уровней
+    private void buildFromSorted(double[] xValues, double[] yValues, int count) {
+        head = new SkipNode(Double.NEGATIVE_INFINITY, Double.NaN, MAX_LEVEL);
+        tail = new SkipNode(Double.POSITIVE_INFINITY, Double.NaN, 0);
+        level = 1;
+        pointsCount = count;
+        nodesMark = new CopyOnWriteMark();
+
+        SkipNode[] last = new SkipNode[MAX_LEVEL];
+        int[] lastPosition = new int[MAX_LEVEL];
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            last[i] = head;
+        }
+
+        SkipNode previous = head;
+        for (int i = 0; i < count; i++) {
+            int position = i + 1;
+            int nodeLevel = randomLevel();
+            SkipNode node = new SkipNode(xValues[i], yValues[i], nodeLevel);
+            node.previous = previous;
+            previous = node;
+
+            for (int j = 0; j < nodeLevel; j++) {
+                last[j].next[j] = node;
+                last[j].width[j] = position - lastPosition[j];
+                last[j] = node;
+                lastPosition[j] = position;
+            }
+            level = Math.max(level, nodeLevel);
+        }
+
+        for (int j = 0; j < MAX_LEVEL; j++) {
+            last[j].next[j] = tail;
+            last[j].width[j] = count + 1 - lastPosition[j];
+        }
+        tail.previous = previous;
+    }
+
+    private int randomLevel() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+
+        // Вероятность подняться на следующий уровень равна 1/4
+        int nodeLevel = Long.numberOfTrailingZeros(randomState | Long.MIN_VALUE) / 2 + 1;
+        return Math.min(nodeLevel, MAX_LEVEL);
+    }
+
+    private SkipNode getNodeByIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+
+        SkipNode node = head;
+        int remaining = index + 1;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.width[i] <= remaining) {
+                remaining -= node.width[i];
+                node = node.next[i];
+            }
+        }
+        return node;
+    }
+
+    // Последний узел с x(узла) <= x либо первый узел, если x левее всех точек
+    private SkipNode findFloorNode(double x) {
+        SkipNode node = head;
+        int probes = level;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != tail && node.next[i].x <= x) {
+                node = node.next[i];
+                probes++;
+            }
+        }
+
+        if (LookupProbes.ENABLED) {
+            LookupProbes.record(PROBES, probes);
+        }
+        return node == head ? head.next[0] : node;
+    }
+
+    // Узел левого конца отрезка, содержащего x
+    private SkipNode findIntervalNode(double x) {
+        SkipNode node = findFloorNode(x);
+        return node.next[0] == tail ? node.previous : node;
+    }
+
+    private double interpolate(SkipNode node, double x) {
+        SkipNode right = node.next[0];
+
+        if (Math.abs(node.x - x) < EPSILON) {
+            return node.y;
+        }
+        if (Math.abs(right.x - x) < EPSILON) {
+            return right.y;
+        }
+
+        return node.y + (right.y - node.y) * (x - node.x) / (right.x - node.x);
+    }
+
+    public double getLeftDomainBorder() {
+        return head.next[0].x;
+    }
+
+    public double getRightDomainBorder() {
+        return tail.previous.x;
+    }
+
+    public double getFunctionValue(double x) {
+        if (x < getLeftDomainBorder() - EPSILON || x > getRightDomainBorder() + EPSILON) {
+            return Double.NaN;
+        }
+
+        return interpolate(findIntervalNode(x), x);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = getLeftDomainBorder() - EPSILON;
+        double rightX = getRightDomainBorder() + EPSILON;
+        SkipNode lastInterval = tail.previous.previous;
+        SkipNode node = head.next[0];
+        double previousX = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < xs.length; i++) {
+            double x = xs[i];
+            if (x < leftX || x > rightX) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            if (x >= previousX) {
+                int steps = 0;
+                while (node != lastInterval && node.next[0].x <= x) {
+                    // Далеко впереди быстрее спуститься по уровням, чем идти по нижнему
+                    if (++steps > CURSOR_WALK_LIMIT) {
+                        node = findIntervalNode(x);
+                        break;
+                    }
+                    node = node.next[0];
+                }
+            } else {
+                node = findIntervalNode(x);
+            }
+            previousX = x;
+
+            out[i] = interpolate(node, x);
+        }
+    }
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        SkipNode node = getNodeByIndex(index);
+        return new FunctionPoint(node.x, node.y);
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws InappropriateFunctionPointException {
+        ensureExclusive();
+        SkipNode node = getNodeByIndex(index);
+
+        if ((index > 0 && point.getX() <= node.previous.x + EPSILON) ||
+                (index < pointsCount-1 && point.getX() >= node.next[0].x - EPSILON)) {
+            throw new InappropriateFunctionPointException("Новая точка нарушает порядок X координат");
+        }
+
+        node.x = point.getX();
+        node.y = point.getY();
+    }
+
+    public double getPointX(int index) {
+        return getNodeByIndex(index).x;
+    }
+
+    public void setPointX(int index, double x) throws InappropriateFunctionPointException {
+        ensureExclusive();
+        SkipNode node = getNodeByIndex(index);
+
+        if ((index > 0 && x <= node.previous.x + EPSILON) ||
+                (index < pointsCount-1 && x >= node.next[0].x - EPSILON)) {
+            throw new InappropriateFunctionPointException("Новая координата X нарушает порядок точек");
+        }
+
+        node.x = x;
+    }
+
+    public double getPointY(int index) {
+        return getNodeByIndex(index).y;
+    }
+
+    public void setPointY(int index, double y) {
+        ensureExclusive();
+        getNodeByIndex(index).y = y;
+    }
+
+    public void deletePoint(int index) {
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалить точку: минимальное количество точек - 2");
+        }
+        if (index < 0 || index >= pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+        }
+
+        ensureExclusive();
+        SkipNode[] update = new SkipNode[level];
+        SkipNode node = head;
+        int position = 0;
+        int target = index + 1;
+        for (int i = level - 1; i >= 0; i--) {
+            while (position + node.width[i] < target) {
+                position += node.width[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        SkipNode removed = update[0].next[0];
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == removed) {
+                update[i].next[i] = removed.next[i];
+                update[i].width[i] += removed.width[i] - 1;
+            } else {
+                update[i].width[i]--;
+            }
+        }
+        for (int i = level; i < MAX_LEVEL; i++) {
+            head.width[i]--;
+        }
+        removed.next[0].previous = update[0];
+
+        while (level > 1 && head.next[level - 1] == tail) {
+            level--;
+        }
+        pointsCount--;
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        ensureExclusive();
+        double x = point.getX();
+        int newLevel = randomLevel();
+        int levels = Math.max(level, newLevel);
+
+        SkipNode[] update = new SkipNode[levels];
+        int[] rank = new int[levels];
+        SkipNode node = head;
+        int position = 0;
+        for (int i = levels - 1; i >= 0; i--) {
+            while (node.next[i] != tail && node.next[i].x < x) {
+                position += node.width[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+            rank[i] = position;
+        }
+
+        if ((node != head && Math.abs(node.x - x) < EPSILON) ||
+                (node.next[0] != tail && Math.abs(node.next[0].x - x) < EPSILON)) {
+            throw new InappropriateFunctionPointException("Точка с X=" + x + " уже существует");
+        }
+
+        SkipNode newNode = new SkipNode(x, point.getY(), newLevel);
+        for (int i = 0; i < levels; i++) {
+            if (i < newLevel) {
+                newNode.next[i] = update[i].next[i];
+                newNode.width[i] = update[i].width[i] - (rank[0] - rank[i]);
+                update[i].next[i] = newNode;
+                update[i].width[i] = rank[0] - rank[i] + 1;
+            } else {
+                update[i].width[i]++;
+            }
+        }
+        for (int i = levels; i < MAX_LEVEL; i++) {
+            head.width[i]++;
+        }
+
+        newNode.previous = update[0];
+        newNode.next[0].previous = newNode;
+        level = levels;
+        pointsCount++;
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(pointsCount);
+        for (SkipNode node = head.next[0]; node != tail; node = node.next[0]) {
+            out.writeDouble(node.x);
+            out.writeDouble(node.y);
+        }
+    }
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int count = in.readInt();
+        double[] xValues = new double[count];
+        double[] yValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            xValues[i] = in.readDouble();
+            yValues[i] = in.readDouble();
+        }
+        buildFromSorted(xValues, yValues, count);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (SkipNode node = head.next[0]; node != tail; node = node.next[0]) {
+            sb.append("(").append(node.x).append("; ").append(node.y).append(")");
+            if (node.next[0] != tail) {
+                sb.append(", ");
+            }
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TabulatedFunction)) return false;
+
+        TabulatedFunction that = (TabulatedFunction) o;
+
+        if (this.getPointsCount() != that.getPointsCount()) return false;
+
+        int index = 0;
+        for (SkipNode node = head.next[0]; node != tail; node = node.next[0]) {
+            if (!new FunctionPoint(node.x, node.y).equals(that.getPoint(index))) {
+                return false;
+            }
+            index++;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = pointsCount;
+        for (SkipNode node = head.next[0]; node != tail; node = node.next[0]) {
+            long xBits = Double.doubleToLongBits(node.x);
+            long yBits = Double.doubleToLongBits(node.y);
+            result ^= (int)(xBits ^ (xBits >>> 32)) ^ (int)(yBits ^ (yBits >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public Object clone() {
+        return new SkipListTabulatedFunction(this);
+    }
+
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        return new Iterator<FunctionPoint>() {
+            private SkipNode currentNode = head.next[0];
+
+            @Override
+            public boolean hasNext() {
+                return currentNode != tail;
+            }
+
+            @Override
+            public FunctionPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Нет следующего элемента");
+                }
+                FunctionPoint point = new FunctionPoint(currentNode.x, currentNode.y);
+                currentNode = currentNode.next[0];
+                return point;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Удаление не поддерживается");
+            }
+        };
+    }
+
+    public static class SkipListTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount) {
+            return new SkipListTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new SkipListTabulatedFunction(leftX, rightX, values);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(FunctionPoint[] points) {
+            return new SkipListTabulatedFunction(points);
+        }
+
+        @Override
+        public TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+            return new SkipListTabulatedFunction(xValues, yValues);
+        }
+    }
+}
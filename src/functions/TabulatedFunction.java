@@ -13,4 +13,9 @@ public interface TabulatedFunction extends Function, Cloneable, Iterable<Functio
     void addPoint(FunctionPoint point) throws InappropriateFunctionPointException;
     void deletePoint(int index);
     Object clone();
+
+    // Неизменяемый снимок текущих точек, который можно свободно передавать между потоками
+    default FrozenTabulatedFunction freeze() {
+        return FrozenTabulatedFunction.copyOf(this);
+    }
 }
\ No newline at end of file
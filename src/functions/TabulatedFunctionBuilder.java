@@ -0,0 +1,18 @@
+package functions;
+
+// Заполнение табулированной функции известного размера по индексам, прямо в её итоговое хранилище.
+// Точки с разными индексами можно задавать из разных потоков; build() вызывается один раз, после заполнения
+public interface TabulatedFunctionBuilder {
+    int getPointsCount();
+
+    void setPoint(int index, double x, double y);
+
+    // Копирует count точек из начала массивов в индексы fromIndex, fromIndex + 1, ...
+    default void setPoints(int fromIndex, double[] xValues, double[] yValues, int count) {
+        for (int i = 0; i < count; i++) {
+            setPoint(fromIndex + i, xValues[i], yValues[i]);
+        }
+    }
+
+    TabulatedFunction build();
+}
@@ -4,4 +4,61 @@ public interface TabulatedFunctionFactory {
     TabulatedFunction createTabulatedFunction(double leftX, double rightX, int pointsCount);
     TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values);
     TabulatedFunction createTabulatedFunction(FunctionPoint[] points);
+
+    // Точки из параллельных массивов координат; массивы копируются
+    default TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+        if (xValues.length != yValues.length) {
+            throw new IllegalArgumentException("Массивы координат X и Y должны быть одной длины");
+        }
+
+        FunctionPoint[] points = new FunctionPoint[xValues.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new FunctionPoint(xValues[i], yValues[i]);
+        }
+        return createTabulatedFunction(points);
+    }
+
+    // Построитель функции из pointsCount точек. По умолчанию точки собираются в массивы координат
+    // и передаются в createTabulatedFunction(double[], double[]); реализации могут писать прямо в своё хранилище
+    default TabulatedFunctionBuilder newBuilder(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Нужно не меньше 2 точек");
+        }
+
+        TabulatedFunctionFactory factory = this;
+        return new TabulatedFunctionBuilder() {
+            private double[] xValues = new double[pointsCount];
+            private double[] yValues = new double[pointsCount];
+
+            @Override
+            public int getPointsCount() {
+                return pointsCount;
+            }
+
+            @Override
+            public void setPoint(int index, double x, double y) {
+                if (xValues == null) {
+                    throw new IllegalStateException("Функция уже построена");
+                }
+                if (index < 0 || index >= pointsCount) {
+                    throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " вне границ [0, " + (pointsCount-1) + "]");
+                }
+                xValues[index] = x;
+                yValues[index] = y;
+            }
+
+            @Override
+            public TabulatedFunction build() {
+                if (xValues == null) {
+                    throw new IllegalStateException("Функция уже построена");
+                }
+
+                double[] xs = xValues;
+                double[] ys = yValues;
+                xValues = null;
+                yValues = null;
+                return factory.createTabulatedFunction(xs, ys);
+            }
+        };
+    }
 }
@@ -1,10 +1,17 @@
 package functions;
 
 import java.io.*;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public final class TabulatedFunctions {
+    private static final int TABULATION_BLOCK = 1024;
     private static TabulatedFunctionFactory factory = new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory();
 
     private TabulatedFunctions() {
@@ -25,91 +32,141 @@ public final class TabulatedFunctions {
         return factory.createTabulatedFunction(points);
     }
 
+    public static TabulatedFunction createTabulatedFunction(double[] xValues, double[] yValues) {
+        return factory.createTabulatedFunction(xValues, yValues);
+    }
+
     public static TabulatedFunction createTabulatedFunction(Class<? extends TabulatedFunction> functionClass, double leftX, double rightX, int pointsCount) {
-        try {
-            Constructor<? extends TabulatedFunction> constructor =
-                    functionClass.getConstructor(double.class, double.class, int.class);
-            return constructor.newInstance(leftX, rightX, pointsCount);
-        } catch (NoSuchMethodException | IllegalAccessException |
-                 InstantiationException | InvocationTargetException e) {
-            throw new IllegalArgumentException("Ошибка при создании объекта через рефлексию", e);
-        }
+        return ReflectiveTabulatedFunctionFactory.forClass(functionClass).createTabulatedFunction(leftX, rightX, pointsCount);
     }
 
     public static TabulatedFunction createTabulatedFunction(Class<? extends TabulatedFunction> functionClass, double leftX, double rightX, double[] values) {
-        try {
-            Constructor<? extends TabulatedFunction> constructor =
-                    functionClass.getConstructor(double.class, double.class, double[].class);
-            return constructor.newInstance(leftX, rightX, values);
-        } catch (NoSuchMethodException | IllegalAccessException |
-                 InstantiationException | InvocationTargetException e) {
-            throw new IllegalArgumentException("Ошибка при создании объекта через рефлексию", e);
-        }
+        return ReflectiveTabulatedFunctionFactory.forClass(functionClass).createTabulatedFunction(leftX, rightX, values);
     }
 
     public static TabulatedFunction createTabulatedFunction(Class<? extends TabulatedFunction> functionClass, FunctionPoint[] points) {
-        try {
-            Constructor<? extends TabulatedFunction> constructor =
-                    functionClass.getConstructor(FunctionPoint[].class);
-            return constructor.newInstance((Object)points);
-        } catch (NoSuchMethodException | IllegalAccessException |
-                 InstantiationException | InvocationTargetException e) {
-            throw new IllegalArgumentException("Ошибка при создании объекта через рефлексию", e);
-        }
+        return ReflectiveTabulatedFunctionFactory.forClass(functionClass).createTabulatedFunction(points);
+    }
+
+    public static TabulatedFunction createTabulatedFunction(Class<? extends TabulatedFunction> functionClass, double[] xValues, double[] yValues) {
+        return ReflectiveTabulatedFunctionFactory.forClass(functionClass).createTabulatedFunction(xValues, yValues);
     }
 
     public static TabulatedFunction tabulate(Function function, double leftX, double rightX, int pointsCount) {
-        if (leftX < function.getLeftDomainBorder() || rightX > function.getRightDomainBorder()) {
-            throw new IllegalArgumentException("Границы табуляции выходят за область определения функции");
-        }
-        if (pointsCount < 2) {
-            throw new IllegalArgumentException("Требуется не менее 2 точек");
-        }
+        return tabulate(factory, function, leftX, rightX, pointsCount);
+    }
+
+    public static TabulatedFunction tabulate(Class<? extends TabulatedFunction> functionClass, Function function, double leftX, double rightX, int pointsCount) {
+        return tabulate(ReflectiveTabulatedFunctionFactory.forClass(functionClass), function, leftX, rightX, pointsCount);
+    }
+
+    public static TabulatedFunction tabulateParallel(Function function, double leftX, double rightX, int pointsCount) {
+        return tabulateParallel(function, leftX, rightX, pointsCount, ForkJoinPool.commonPool());
+    }
+
+    public static TabulatedFunction tabulateParallel(Function function, double leftX, double rightX, int pointsCount, ForkJoinPool pool) {
+        return tabulateParallel(factory, function, leftX, rightX, pointsCount, pool);
+    }
 
-        FunctionPoint[] points = new FunctionPoint[pointsCount];
+    public static TabulatedFunction tabulateParallel(Class<? extends TabulatedFunction> functionClass, Function function, double leftX, double rightX, int pointsCount) {
+        return tabulateParallel(ReflectiveTabulatedFunctionFactory.forClass(functionClass), function, leftX, rightX, pointsCount, ForkJoinPool.commonPool());
+    }
+
+    // Узлы вычисляются блоками через getFunctionValues и сразу передаются построителю фабрики,
+    // без промежуточного массива FunctionPoint
+    private static TabulatedFunction tabulate(TabulatedFunctionFactory factory, Function function, double leftX, double rightX, int pointsCount) {
+        checkTabulationArguments(function, leftX, rightX, pointsCount);
+
+        TabulatedFunctionBuilder builder = factory.newBuilder(pointsCount);
         double step = (rightX - leftX) / (pointsCount - 1);
+        tabulateRange(function, builder, leftX, step, 0, pointsCount);
+        return builder.build();
+    }
 
-        for (int i = 0; i < pointsCount; i++) {
-            double x = leftX + i * step;
-            double y = function.getFunctionValue(x);
-            points[i] = new FunctionPoint(x, y);
-        }
+    // Узлы те же, что и в tabulate (x_i = leftX + i * step), и каждый считается независимо,
+    // поэтому результат совпадает с последовательной табуляцией при любом числе потоков
+    private static TabulatedFunction tabulateParallel(TabulatedFunctionFactory factory, Function function,
+                                                      double leftX, double rightX, int pointsCount, ForkJoinPool pool) {
+        checkTabulationArguments(function, leftX, rightX, pointsCount);
 
-        return factory.createTabulatedFunction(points);
+        TabulatedFunctionBuilder builder = factory.newBuilder(pointsCount);
+        double step = (rightX - leftX) / (pointsCount - 1);
+        ParallelTabulation task = new ParallelTabulation(function, builder, leftX, step, 0, pointsCount);
+        if (pointsCount <= ParallelTabulation.SEQUENTIAL_POINTS) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return builder.build();
     }
 
-    public static TabulatedFunction tabulate(Class<? extends TabulatedFunction> functionClass, Function function, double leftX, double rightX, int pointsCount) {
+    private static void checkTabulationArguments(Function function, double leftX, double rightX, int pointsCount) {
         if (leftX < function.getLeftDomainBorder() || rightX > function.getRightDomainBorder()) {
             throw new IllegalArgumentException("Границы табуляции выходят за область определения функции");
         }
         if (pointsCount < 2) {
             throw new IllegalArgumentException("Требуется не менее 2 точек");
         }
+    }
 
-        FunctionPoint[] points = new FunctionPoint[pointsCount];
-        double step = (rightX - leftX) / (pointsCount - 1);
+    private static void tabulateRange(Function function, TabulatedFunctionBuilder builder, double leftX, double step,
+                                      int fromIndex, int toIndex) {
+        double[] xValues = new double[Math.min(toIndex - fromIndex, TABULATION_BLOCK)];
+        double[] yValues = new double[xValues.length];
 
-        for (int i = 0; i < pointsCount; i++) {
-            double x = leftX + i * step;
-            double y = function.getFunctionValue(x);
-            points[i] = new FunctionPoint(x, y);
+        for (int from = fromIndex; from < toIndex; from += xValues.length) {
+            int count = Math.min(xValues.length, toIndex - from);
+            double[] xs = count == xValues.length ? xValues : Arrays.copyOf(xValues, count);
+            for (int i = 0; i < count; i++) {
+                xs[i] = leftX + (from + i) * step;
+            }
+            function.getFunctionValues(xs, yValues);
+            builder.setPoints(from, xs, yValues, count);
         }
-
-        return createTabulatedFunction(functionClass, points);
     }
 
-    public static TabulatedFunction inputTabulatedFunction(Class<? extends TabulatedFunction> functionClass, InputStream in) {
-        try (DataInputStream dis = new DataInputStream(in)) {
-            int pointsCount = dis.readInt();
-            FunctionPoint[] points = new FunctionPoint[pointsCount];
-
-            for (int i = 0; i < pointsCount; i++) {
-                double x = dis.readDouble();
-                double y = dis.readDouble();
-                points[i] = new FunctionPoint(x, y);
+    // Табуляция узлов [fromIndex, toIndex): отрезок делится пополам, пока не станет достаточно коротким.
+    // Задача не покидает пул, поэтому функция и построитель в сериализованную форму не входят
+    private static class ParallelTabulation extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        static final int SEQUENTIAL_POINTS = 1 << 12;
+
+        private final transient Function function;
+        private final transient TabulatedFunctionBuilder builder;
+        private final double leftX;
+        private final double step;
+        private final int fromIndex;
+        private final int toIndex;
+
+        ParallelTabulation(Function function, TabulatedFunctionBuilder builder, double leftX, double step,
+                           int fromIndex, int toIndex) {
+            this.function = function;
+            this.builder = builder;
+            this.leftX = leftX;
+            this.step = step;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (toIndex - fromIndex <= SEQUENTIAL_POINTS) {
+                tabulateRange(function, builder, leftX, step, fromIndex, toIndex);
+                return;
             }
 
-            return createTabulatedFunction(functionClass, points);
+            int middleIndex = (fromIndex + toIndex) >>> 1;
+            invokeAll(new ParallelTabulation(function, builder, leftX, step, fromIndex, middleIndex),
+                    new ParallelTabulation(function, builder, leftX, step, middleIndex, toIndex));
+        }
+    }
+
+    public static TabulatedFunction inputTabulatedFunction(Class<? extends TabulatedFunction> functionClass, InputStream in) {
+        try (ReadableByteChannel channel = readableChannel(in)) {
+            BinaryTabulatedFormat.Header header = BinaryTabulatedFormat.readHeader(channel);
+            TabulatedFunctionBuilder builder = ReflectiveTabulatedFunctionFactory.forClass(functionClass).newBuilder(header.pointsCount);
+            BinaryTabulatedFormat.readPoints(channel, header, builder);
+            return builder.build();
         } catch (IOException e) {
             throw new RuntimeException("Ошибка чтения табулированной функции из потока", e);
         }
@@ -117,110 +174,102 @@ public final class TabulatedFunctions {
 
     public static TabulatedFunction readTabulatedFunction(Class<? extends TabulatedFunction> functionClass, Reader in) {
         try {
-            StreamTokenizer tokenizer = new StreamTokenizer(in);
-            tokenizer.parseNumbers();
-
-            if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                throw new RuntimeException("Ожидалось количество точек");
-            }
-            int pointsCount = (int) tokenizer.nval;
-
-            FunctionPoint[] points = new FunctionPoint[pointsCount];
-
-            for (int i = 0; i < pointsCount; i++) {
-                if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                    throw new RuntimeException("Ожидалась координата X");
-                }
-                double x = tokenizer.nval;
-
-                if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                    throw new RuntimeException("Ожидалась координата Y");
-                }
-                double y = tokenizer.nval;
-
-                points[i] = new FunctionPoint(x, y);
-            }
+            double[][] coordinates = TextTabulatedFormat.read(in);
+            return createTabulatedFunction(functionClass, coordinates[0], coordinates[1]);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения табулированной функции из reader", e);
+        }
+    }
 
-            return createTabulatedFunction(functionClass, points);
+    public static TabulatedFunction readTabulatedFunctionCsv(Class<? extends TabulatedFunction> functionClass, Reader in) {
+        try {
+            double[][] coordinates = TextTabulatedFormat.readCsv(in);
+            return createTabulatedFunction(functionClass, coordinates[0], coordinates[1]);
         } catch (IOException e) {
             throw new RuntimeException("Ошибка чтения табулированной функции из reader", e);
         }
     }
 
     public static void outputTabulatedFunction(TabulatedFunction function, OutputStream out) {
-        try (DataOutputStream dos = new DataOutputStream(out)) {
-            dos.writeInt(function.getPointsCount());
-            for (int i = 0; i < function.getPointsCount(); i++) {
-                FunctionPoint point = function.getPoint(i);
-                dos.writeDouble(point.getX());
-                dos.writeDouble(point.getY());
-            }
-            dos.flush();
+        outputTabulatedFunction(function, out, ByteOrder.BIG_ENDIAN, false);
+    }
+
+    // columnar - записать сначала все x, затем все y (удобно для чтения столбцов целиком)
+    public static void outputTabulatedFunction(TabulatedFunction function, OutputStream out, ByteOrder order, boolean columnar) {
+        try (WritableByteChannel channel = writableChannel(out)) {
+            BinaryTabulatedFormat.write(function, channel, order, columnar);
         } catch (IOException e) {
             throw new RuntimeException("Ошибка записи табулированной функции в поток", e);
         }
     }
 
-    public static TabulatedFunction inputTabulatedFunction(InputStream in) {
-        try (DataInputStream dis = new DataInputStream(in)) {
-            int pointsCount = dis.readInt();
-            FunctionPoint[] points = new FunctionPoint[pointsCount];
-
-            for (int i = 0; i < pointsCount; i++) {
-                double x = dis.readDouble();
-                double y = dis.readDouble();
-                points[i] = new FunctionPoint(x, y);
-            }
+    // Сжатый формат: разности разностей для x и XOR соседних значений для y; читается тем же inputTabulatedFunction
+    public static void outputTabulatedFunctionCompressed(TabulatedFunction function, OutputStream out) {
+        try (WritableByteChannel channel = writableChannel(out)) {
+            BinaryTabulatedFormat.writeCompressed(function, channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка записи табулированной функции в поток", e);
+        }
+    }
 
-            return factory.createTabulatedFunction(points);
+    public static TabulatedFunction inputTabulatedFunction(InputStream in) {
+        try (ReadableByteChannel channel = readableChannel(in)) {
+            BinaryTabulatedFormat.Header header = BinaryTabulatedFormat.readHeader(channel);
+            TabulatedFunctionBuilder builder = factory.newBuilder(header.pointsCount);
+            BinaryTabulatedFormat.readPoints(channel, header, builder);
+            return builder.build();
         } catch (IOException e) {
             throw new RuntimeException("Ошибка чтения табулированной функции из потока", e);
         }
     }
 
+    private static ReadableByteChannel readableChannel(InputStream in) {
+        return in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in);
+    }
+
+    private static WritableByteChannel writableChannel(OutputStream out) {
+        return out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out);
+    }
+
+    public static TabulatedFunction mapTabulatedFunction(Path path) {
+        try {
+            return new MappedTabulatedFunction(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка отображения табулированной функции из файла в память", e);
+        }
+    }
+
     public static void writeTabulatedFunction(TabulatedFunction function, Writer out) {
-        try (PrintWriter pw = new PrintWriter(new BufferedWriter(out))) {
-            pw.print(function.getPointsCount());
+        try (Writer writer = out) {
+            TextTabulatedFormat.write(function, writer, false);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка записи табулированной функции в writer", e);
+        }
+    }
 
-            for (int i = 0; i < function.getPointsCount(); i++) {
-                FunctionPoint point = function.getPoint(i);
-                pw.print(" " + point.getX() + " " + point.getY());
-            }
-            pw.flush();
-        } catch (Exception e) {
+    public static void writeTabulatedFunctionCsv(TabulatedFunction function, Writer out) {
+        try (Writer writer = out) {
+            TextTabulatedFormat.write(function, writer, true);
+        } catch (IOException e) {
             throw new RuntimeException("Ошибка записи табулированной функции в writer", e);
         }
     }
 
     public static TabulatedFunction readTabulatedFunction(Reader in) {
         try {
-            StreamTokenizer tokenizer = new StreamTokenizer(in);
-            tokenizer.parseNumbers();
-
-            if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                throw new RuntimeException("Ожидалось количество точек");
-            }
-            int pointsCount = (int) tokenizer.nval;
-
-            FunctionPoint[] points = new FunctionPoint[pointsCount];
-
-            for (int i = 0; i < pointsCount; i++) {
-                if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                    throw new RuntimeException("Ожидалась координата X");
-                }
-                double x = tokenizer.nval;
-
-                if (tokenizer.nextToken() != StreamTokenizer.TT_NUMBER) {
-                    throw new RuntimeException("Ожидалась координата Y");
-                }
-                double y = tokenizer.nval;
-
-                points[i] = new FunctionPoint(x, y);
-            }
+            double[][] coordinates = TextTabulatedFormat.read(in);
+            return factory.createTabulatedFunction(coordinates[0], coordinates[1]);
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения табулированной функции из reader", e);
+        }
+    }
 
-            return factory.createTabulatedFunction(points);
+    public static TabulatedFunction readTabulatedFunctionCsv(Reader in) {
+        try {
+            double[][] coordinates = TextTabulatedFormat.readCsv(in);
+            return factory.createTabulatedFunction(coordinates[0], coordinates[1]);
         } catch (IOException e) {
             throw new RuntimeException("Ошибка чтения табулированной функции из reader", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,602 @@
+package functions;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// Текстовые форматы табулированной функции:
+// через пробел - "количество x1 y1 x2 y2 ...", CSV - по строке "x,y" на точку без количества
+// (первая строка может быть заголовком). Чтение потоковое, числа разбираются без создания строк
+final class TextTabulatedFormat {
+    private static final int BUFFER_CHARS = 1 << 13;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // 19 десятичных цифр всегда помещаются в 64 бита без знака
+    private static final int MAX_MANTISSA_DIGITS = 19;
+    private static final int MIN_POWER_OF_TEN = -348;
+    private static final int MAX_POWER_OF_TEN = 347;
+    // Степени 10 до 10^22 представимы в double точно
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private TextTabulatedFormat() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    static void write(TabulatedFunction function, Writer out, boolean csv) throws IOException {
+        int pointsCount = function.getPointsCount();
+        TextBuffer buffer = new TextBuffer(out, (int) Math.min(BUFFER_CHARS, 16 + 50L * pointsCount));
+
+        if (!csv) {
+            buffer.appendLong(pointsCount);
+        }
+        for (int i = 0; i < pointsCount; i++) {
+            if (csv) {
+                buffer.appendDouble(function.getPointX(i));
+                buffer.append(',');
+                buffer.appendDouble(function.getPointY(i));
+                buffer.append('\n');
+            } else {
+                buffer.append(' ');
+                buffer.appendDouble(function.getPointX(i));
+                buffer.append(' ');
+                buffer.appendDouble(function.getPointY(i));
+            }
+        }
+        buffer.flush();
+        out.flush();
+    }
+
+    // Читает формат через пробел; возвращает {xValues, yValues}
+    static double[][] read(Reader in) throws IOException {
+        TextScanner scanner = new TextScanner(in);
+
+        double count = scanner.nextDouble("Ожидалось количество точек");
+        int pointsCount = (int) count;
+        if (pointsCount != count || pointsCount < 0) {
+            throw new RuntimeException("Ожидалось количество точек");
+        }
+
+        double[] xValues = new double[pointsCount];
+        double[] yValues = new double[pointsCount];
+        for (int i = 0; i < pointsCount; i++) {
+            xValues[i] = scanner.nextDouble("Ожидалась координата X");
+            yValues[i] = scanner.nextDouble("Ожидалась координата Y");
+        }
+        return new double[][]{xValues, yValues};
+    }
+
+    static double[][] readCsv(Reader in) throws IOException {
+        TextScanner scanner = new TextScanner(in);
+        scanner.skipHeader();
+
+        double[] xValues = new double[1024];
+        double[] yValues = new double[1024];
+        int pointsCount = 0;
+        while (scanner.hasNext()) {
+            if (pointsCount == xValues.length) {
+                xValues = Arrays.copyOf(xValues, pointsCount * 2);
+                yValues = Arrays.copyOf(yValues, pointsCount * 2);
+            }
+            xValues[pointsCount] = scanner.nextDouble("Ожидалась координата X");
+            yValues[pointsCount] = scanner.nextDouble("Ожидалась координата Y");
+            pointsCount++;
+        }
+        return new double[][]{Arrays.copyOf(xValues, pointsCount), Arrays.copyOf(yValues, pointsCount)};
+    }
+
+    private static boolean isSeparator(char c) {
+        return c <= ' ' || c == ',';
+    }
+
+    // Быстрый путь Клингера: мантисса до 2^53 и показатель до 22 по модулю дают точно округлённый
+    // результат одним умножением или делением. Длинные мантиссы - алгоритмом Эйзеля-Лемира,
+    // остальное (больше 19 цифр, NaN, Infinity, спорные случаи) - через Double.parseDouble
+    static double parseDouble(char[] buffer, int start, int end, String expected) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean truncated = false;
+
+        while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                truncated = true;
+            }
+            anyDigits = true;
+            i++;
+        }
+        if (i < end && buffer[i] == '.') {
+            i++;
+            while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (buffer[i] - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated = true;
+                }
+                anyDigits = true;
+                i++;
+            }
+        }
+
+        if (anyDigits && i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                negativeExponent = buffer[i] == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + (buffer[i] - '0');
+                }
+                i++;
+            }
+            if (i == exponentStart) {
+                anyDigits = false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (anyDigits && i == end && !truncated) {
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+                double value = mantissa;
+                value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+                return negative ? -value : value;
+            }
+            if (exponent >= MIN_POWER_OF_TEN && exponent <= MAX_POWER_OF_TEN) {
+                long bits = eiselLemire(mantissa, exponent);
+                if (bits >= 0) {
+                    return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+                }
+            }
+        }
+
+        try {
+            return Double.parseDouble(new String(buffer, start, end - start));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(expected, e);
+        }
+    }
+
+    // Алгоритм Эйзеля-Лемира: мантисса (до 19 цифр, без знака) умножается на 128-битное приближение 10^exponent.
+    // Возвращает биты положительного double либо -1, если результат нельзя гарантировать
+    // (неоднозначное округление, денормализованные числа, переполнение) - тогда работает Double.parseDouble
+    private static long eiselLemire(long mantissa, int exponent) {
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long normalized = mantissa << leadingZeros;
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        int index = exponent - MIN_POWER_OF_TEN;
+        long powerHigh = PowersOfTen.HIGH[index];
+        long productHigh = Math.unsignedMultiplyHigh(normalized, powerHigh);
+        long productLow = normalized * powerHigh;
+
+        if ((productHigh & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + normalized, normalized) < 0) {
+            long powerLow = PowersOfTen.LOW[index];
+            long correctionHigh = Math.unsignedMultiplyHigh(normalized, powerLow);
+            long correctionLow = normalized * powerLow;
+            long mergedHigh = productHigh;
+            long mergedLow = productLow + correctionHigh;
+            if (Long.compareUnsigned(mergedLow, productLow) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 &&
+                    Long.compareUnsigned(correctionLow + normalized, normalized) < 0) {
+                return -1;
+            }
+            productHigh = mergedHigh;
+            productLow = mergedLow;
+        }
+
+        long upperBit = productHigh >>> 63;
+        long result = productHigh >>> (upperBit + 9);
+        exponent2 -= 1 ^ upperBit;
+
+        if (productLow == 0 && (productHigh & 0x1FF) == 0 && (result & 3) == 1) {
+            return -1;
+        }
+
+        result += result & 1;
+        result >>>= 1;
+        if ((result >>> 53) > 0) {
+            result >>>= 1;
+            exponent2++;
+        }
+        if (exponent2 <= 0 || exponent2 >= 0x7FF) {
+            return -1;
+        }
+        return exponent2 << 52 | result & 0x000FFFFFFFFFFFFFL;
+    }
+
+    // Старшие и младшие 64 бита нормализованной (старший бит равен 1) мантиссы 10^e, округлённой вниз.
+    // Таблица строится один раз при первом обращении
+    private static final class PowersOfTen {
+        static final long[] HIGH = new long[MAX_POWER_OF_TEN - MIN_POWER_OF_TEN + 1];
+        static final long[] LOW = new long[HIGH.length];
+
+        static {
+            for (int e = MIN_POWER_OF_TEN; e <= MAX_POWER_OF_TEN; e++) {
+                BigInteger power = BigInteger.TEN.pow(Math.abs(e));
+                BigInteger mantissa;
+                if (e >= 0) {
+                    int shift = power.bitLength() - 128;
+                    mantissa = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+                } else {
+                    mantissa = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+                }
+                HIGH[e - MIN_POWER_OF_TEN] = mantissa.shiftRight(64).longValue();
+                LOW[e - MIN_POWER_OF_TEN] = mantissa.longValue();
+            }
+        }
+    }
+
+    // Буфер вывода с форматированием double в кратчайшую десятичную запись, однозначно читаемую обратно
+    // (алгоритм Schubfach, тот же, что у Double.toString, и в том же виде: 0.001, 12.5, 1.0E7, 4.9E-324).
+    // Символы пишутся прямо в буфер, без промежуточных строк
+    private static final class TextBuffer {
+        private static final int MAX_NUMBER_CHARS = 32;
+        private static final long SIGNIFICAND_MASK = (1L << 52) - 1;
+        private static final long HIDDEN_BIT = 1L << 52;
+        private static final int MIN_BINARY_EXPONENT = -1074;
+        private static final int MIN_DECIMAL_EXPONENT = -324;
+        private static final int MAX_DECIMAL_EXPONENT = 292;
+
+        private final Writer out;
+        private final char[] buffer;
+        private final char[] digits = new char[20];
+        private int length;
+
+        TextBuffer(Writer out, int capacity) {
+            this.out = out;
+            this.buffer = new char[capacity + MAX_NUMBER_CHARS];
+        }
+
+        void append(char c) throws IOException {
+            buffer[length++] = c;
+            if (length >= buffer.length - MAX_NUMBER_CHARS) {
+                flush();
+            }
+        }
+
+        void appendLong(long value) throws IOException {
+            if (value < 0) {
+                buffer[length++] = '-';
+                value = -value;
+            }
+            appendDigits(value);
+            if (length >= buffer.length - MAX_NUMBER_CHARS) {
+                flush();
+            }
+        }
+
+        void appendDouble(double value) throws IOException {
+            long bits = Double.doubleToRawLongBits(value);
+            long significand = bits & SIGNIFICAND_MASK;
+            int biasedExponent = (int) (bits >>> 52) & 0x7FF;
+
+            if (biasedExponent == 0x7FF) {
+                appendText(significand != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity");
+            } else {
+                if (bits < 0) {
+                    buffer[length++] = '-';
+                }
+                if (biasedExponent == 0) {
+                    if (significand == 0) {
+                        appendText("0.0");
+                    } else if (significand < 3) {
+                        toDecimal(MIN_BINARY_EXPONENT, 10 * significand, -1);
+                    } else {
+                        toDecimal(MIN_BINARY_EXPONENT, significand, 0);
+                    }
+                } else {
+                    int shift = 1075 - biasedExponent;
+                    long c = HIDDEN_BIT | significand;
+                    // Целые числа до 2^53 записываются без поиска кратчайших цифр
+                    if (0 < shift && shift < 53 && (c >> shift) << shift == c) {
+                        appendDecimal(c >> shift, 0);
+                    } else {
+                        toDecimal(-shift, c, 0);
+                    }
+                }
+            }
+
+            if (length >= buffer.length - MAX_NUMBER_CHARS) {
+                flush();
+            }
+        }
+
+        // Значение c * 2^q; ищутся кратчайшие десятичные цифры внутри интервала округления
+        private void toDecimal(int q, long c, int dk) {
+            int odd = (int) c & 1;
+            long cb = c << 2;
+            long cbr = cb + 2;
+            long cbl;
+            int k;
+            if (c != HIDDEN_BIT || q == MIN_BINARY_EXPONENT) {
+                cbl = cb - 2;
+                k = floorLog10Pow2(q);
+            } else {
+                cbl = cb - 1;
+                k = floorLog10ThreeQuartersPow2(q);
+            }
+            int h = q + floorLog2Pow10(-k) + 2;
+
+            long g1 = Schubfach.G1[k - MIN_DECIMAL_EXPONENT];
+            long g0 = Schubfach.G0[k - MIN_DECIMAL_EXPONENT];
+
+            long vb = roundToOdd(g1, g0, cb << h);
+            long vbl = roundToOdd(g1, g0, cbl << h);
+            long vbr = roundToOdd(g1, g0, cbr << h);
+
+            long s = vb >> 2;
+            if (s >= 100) {
+                long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+                long tp10 = sp10 + 10;
+                boolean upin = vbl + odd <= sp10 << 2;
+                boolean wpin = (tp10 << 2) + odd <= vbr;
+                if (upin != wpin) {
+                    appendDecimal(upin ? sp10 : tp10, k);
+                    return;
+                }
+            }
+
+            long t = s + 1;
+            boolean uin = vbl + odd <= s << 2;
+            boolean win = (t << 2) + odd <= vbr;
+            if (uin != win) {
+                appendDecimal(uin ? s : t, k + dk);
+                return;
+            }
+
+            long cmp = vb - (s + t << 1);
+            appendDecimal(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk);
+        }
+
+        private static long roundToOdd(long g1, long g0, long cp) {
+            long x1 = Math.multiplyHigh(g0, cp);
+            long y0 = g1 * cp;
+            long y1 = Math.multiplyHigh(g1, cp);
+            long z = (y0 >>> 1) + x1;
+            long vbp = y1 + (z >>> 63);
+            return vbp | (z & Long.MAX_VALUE) + Long.MAX_VALUE >>> 63;
+        }
+
+        private static int floorLog10Pow2(int e) {
+            return (int) (e * 661_971_961_083L >> 41);
+        }
+
+        private static int floorLog10ThreeQuartersPow2(int e) {
+            return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+        }
+
+        private static int floorLog2Pow10(int e) {
+            return (int) (e * 913_124_641_741L >> 38);
+        }
+
+        // Значение f * 10^e в формате Double.toString
+        private void appendDecimal(long f, int e) {
+            int count = 0;
+            do {
+                digits[count++] = (char) ('0' + f % 10);
+                f /= 10;
+            } while (f != 0);
+
+            // digits хранит цифры в обратном порядке; значение равно 0.d1d2... * 10^pointPosition
+            int pointPosition = e + count;
+            int last = 0;
+            while (last < count - 1 && digits[last] == '0') {
+                last++;
+            }
+
+            if (0 < pointPosition && pointPosition <= 7) {
+                for (int i = 0; i < pointPosition; i++) {
+                    int index = count - 1 - i;
+                    buffer[length++] = index >= last ? digits[index] : '0';
+                }
+                buffer[length++] = '.';
+                if (count - pointPosition > last) {
+                    for (int index = count - 1 - pointPosition; index >= last; index--) {
+                        buffer[length++] = digits[index];
+                    }
+                } else {
+                    buffer[length++] = '0';
+                }
+            } else if (-3 < pointPosition && pointPosition <= 0) {
+                buffer[length++] = '0';
+                buffer[length++] = '.';
+                for (int i = pointPosition; i < 0; i++) {
+                    buffer[length++] = '0';
+                }
+                for (int index = count - 1; index >= last; index--) {
+                    buffer[length++] = digits[index];
+                }
+            } else {
+                buffer[length++] = digits[count - 1];
+                buffer[length++] = '.';
+                if (count - 1 > last) {
+                    for (int index = count - 2; index >= last; index--) {
+                        buffer[length++] = digits[index];
+                    }
+                } else {
+                    buffer[length++] = '0';
+                }
+                buffer[length++] = 'E';
+                int exponent = pointPosition - 1;
+                if (exponent < 0) {
+                    buffer[length++] = '-';
+                    exponent = -exponent;
+                }
+                appendDigits(exponent);
+            }
+        }
+
+        private void appendDigits(long value) {
+            int count = 0;
+            do {
+                digits[count++] = (char) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            while (count > 0) {
+                buffer[length++] = digits[--count];
+            }
+        }
+
+        private void appendText(String text) {
+            text.getChars(0, text.length(), buffer, length);
+            length += text.length();
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    // Таблица Schubfach: g = floor(10^(-k) * 2^r) + 1, где r выбрано так, что 2^125 <= g - 1 < 2^126;
+    // G1 - старшие биты g (g >> 63), G0 - младшие 63 бита. Индекс - k от MIN_DECIMAL_EXPONENT
+    private static final class Schubfach {
+        static final long[] G1;
+        static final long[] G0;
+
+        static {
+            int size = TextBuffer.MAX_DECIMAL_EXPONENT - TextBuffer.MIN_DECIMAL_EXPONENT + 1;
+            G1 = new long[size];
+            G0 = new long[size];
+            for (int k = TextBuffer.MIN_DECIMAL_EXPONENT; k <= TextBuffer.MAX_DECIMAL_EXPONENT; k++) {
+                BigInteger g;
+                if (k <= 0) {
+                    BigInteger power = BigInteger.TEN.pow(-k);
+                    int shift = power.bitLength() - 126;
+                    g = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+                } else {
+                    BigInteger power = BigInteger.TEN.pow(k);
+                    g = BigInteger.ONE.shiftLeft(125 + power.bitLength()).divide(power);
+                }
+                g = g.add(BigInteger.ONE);
+                G1[k - TextBuffer.MIN_DECIMAL_EXPONENT] = g.shiftRight(63).longValue();
+                G0[k - TextBuffer.MIN_DECIMAL_EXPONENT] = g.longValue() & Long.MAX_VALUE;
+            }
+        }
+    }
+
+    // Разбор потока по лексемам; лексема, попавшая на границу буфера, переносится в его начало
+    private static final class TextScanner {
+        private final Reader in;
+        private char[] buffer = new char[BUFFER_CHARS];
+        private int position;
+        private int limit;
+        private boolean endOfStream;
+
+        TextScanner(Reader in) {
+            this.in = in;
+        }
+
+        boolean hasNext() throws IOException {
+            while (true) {
+                while (position < limit) {
+                    if (!isSeparator(buffer[position])) {
+                        return true;
+                    }
+                    position++;
+                }
+                if (endOfStream) {
+                    return false;
+                }
+                position = 0;
+                limit = 0;
+                fill();
+            }
+        }
+
+        double nextDouble(String expected) throws IOException {
+            if (!hasNext()) {
+                throw new RuntimeException(expected);
+            }
+
+            int end = position;
+            while (true) {
+                while (end < limit && !isSeparator(buffer[end])) {
+                    end++;
+                }
+                if (end < limit || endOfStream) {
+                    break;
+                }
+
+                int length = end - position;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                } else {
+                    System.arraycopy(buffer, position, buffer, 0, length);
+                }
+                position = 0;
+                end = length;
+                limit = length;
+                fill();
+            }
+
+            double value = parseDouble(buffer, position, end, expected);
+            position = end;
+            return value;
+        }
+
+        // Строка заголовка CSV начинается с буквы (кроме NaN и Infinity)
+        void skipHeader() throws IOException {
+            if (!hasNext()) {
+                return;
+            }
+            char first = buffer[position];
+            if (!Character.isLetter(first) || first == 'N' || first == 'I') {
+                return;
+            }
+
+            while (true) {
+                while (position < limit) {
+                    if (buffer[position++] == '\n') {
+                        return;
+                    }
+                }
+                if (endOfStream) {
+                    return;
+                }
+                position = 0;
+                limit = 0;
+                fill();
+            }
+        }
+
+        private void fill() throws IOException {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+}
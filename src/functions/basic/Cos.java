@@ -4,4 +4,14 @@ public class Cos extends TrigonometricFunction {
     public double getFunctionValue(double x) {
         return Math.cos(x);
     }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = Math.cos(xs[i]);
+        }
+    }
 }
\ No newline at end of file
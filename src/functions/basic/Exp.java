@@ -14,4 +14,14 @@ public class Exp implements Function {
     public double getFunctionValue(double x) {
         return Math.exp(x);
     }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = Math.exp(xs[i]);
+        }
+    }
 }
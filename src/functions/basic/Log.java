@@ -25,6 +25,17 @@ public class Log implements Function {
         return Math.log(x) / Math.log(base);
     }
 
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double logBase = Math.log(base);
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = xs[i] <= 0 ? Double.NaN : Math.log(xs[i]) / logBase;
+        }
+    }
+
     public double getBase() {
         return base;
     }
@@ -4,4 +4,14 @@ public class Tan extends TrigonometricFunction {
     public double getFunctionValue(double x) {
         return Math.tan(x);
     }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = Math.tan(xs[i]);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package functions.cache;
+
+import functions.Function;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Функция, запоминающая вычисленные значения. Кэш ограничен по размеру и устроен как
+// множественно-ассоциативная таблица примитивов: аргумент попадает в один набор из WAYS ячеек,
+// а при переполнении набора вытесняется ячейка по политике EvictionPolicy.
+// Таблица разбита на сегменты со своими блокировками, поэтому потоки, обращающиеся к разным
+// сегментам, друг другу не мешают; сама функция вычисляется вне блокировки.
+// Если задан допуск tolerance, аргумент округляется до ближайшего узла сетки с этим шагом,
+// и значение вычисляется в этом узле - так близкие аргументы получают одно и то же значение
+// (в том числе NaN, если узел попал в особую точку функции, как 0 у логарифма).
+// Кэш не следит за изменениями исходной функции: после изменения табулированных функций
+// внутри неё нужно вызвать clear()
+public class CachedFunction implements Function {
+    private static final int WAYS = 8;
+    private static final int MAX_SEGMENTS = 64;
+    // Сигнальный NaN: аргументы NaN не кэшируются, поэтому пустая ячейка не совпадёт ни с одним ключом
+    private static final long EMPTY = 0x7ff0000000000001L;
+
+    private final Function function;
+    private final EvictionPolicy policy;
+    private final double tolerance;
+    private final int maximumSize;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public CachedFunction(Function function, int maximumSize) {
+        this(function, maximumSize, EvictionPolicy.LRU, 0);
+    }
+
+    public CachedFunction(Function function, int maximumSize, EvictionPolicy policy) {
+        this(function, maximumSize, policy, 0);
+    }
+
+    public CachedFunction(Function function, int maximumSize, EvictionPolicy policy, double tolerance) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException("Допуск должен быть неотрицательным конечным числом");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Не задана политика вытеснения");
+        }
+
+        this.function = function;
+        this.policy = policy;
+        this.tolerance = tolerance;
+        this.maximumSize = maximumSize;
+
+        int ways = Math.min(WAYS, maximumSize);
+        int sets = maximumSize / ways;
+        int segmentsCount = Integer.highestOneBit(Math.min(sets, MAX_SEGMENTS));
+        this.segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            int segmentSets = sets / segmentsCount + (i < sets % segmentsCount ? 1 : 0);
+            segments[i] = new Segment(segmentSets, ways, policy == EvictionPolicy.TINY_LFU);
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    public double getFunctionValue(double x) {
+        if (Double.isNaN(x)) {
+            return function.getFunctionValue(x);
+        }
+
+        double key = tolerance == 0 ? x : snap(x);
+        long bits = Double.doubleToRawLongBits(key);
+        long hash = mix(bits);
+        Segment segment = segments[(int) hash & (segments.length - 1)];
+        int set = segment.setOf(hash);
+
+        synchronized (segment) {
+            segment.recordAccess(hash);
+            int slot = segment.find(set, bits);
+            if (slot >= 0) {
+                segment.lastAccess[slot] = ++segment.clock;
+                hits.increment();
+                return segment.values[slot];
+            }
+        }
+
+        misses.increment();
+        double value = function.getFunctionValue(key);
+
+        synchronized (segment) {
+            segment.put(set, bits, hash, value);
+        }
+        return value;
+    }
+
+    // Узел сетки с шагом tolerance, прижатый к области определения, чтобы не выйти за её границы.
+    // Если x / tolerance не меньше 2^52, x уже лежит на сетке с точностью double; при очень малом допуске
+    // частное или произведение переполняются, и тогда ключом тоже служит сам x
+    private double snap(double x) {
+        double quotient = x / tolerance;
+        if (!(Math.abs(quotient) < 0x1p52)) {
+            return x;
+        }
+        double snapped = Math.rint(quotient) * tolerance;
+        if (Double.isInfinite(snapped)) {
+            return x;
+        }
+        double left = function.getLeftDomainBorder();
+        double right = function.getRightDomainBorder();
+        if (snapped < left && x >= left) {
+            return left;
+        }
+        if (snapped > right && x <= right) {
+            return right;
+        }
+        return snapped;
+    }
+
+    private static long mix(long bits) {
+        long h = bits * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 32);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Сколько значений вытеснено из кэша новыми
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Сколько новых значений TINY_LFU не пустил в кэш, потому что они встречались реже вытесняемых
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? Double.NaN : (double) hitCount / requests;
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        rejections.reset();
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedFunction{" + policy + ", размер " + size() + " из " + maximumSize +
+                ", попаданий " + getHitCount() + ", промахов " + getMissCount() + "}";
+    }
+
+    private final class Segment {
+        private final long[] keys;
+        private final double[] values;
+        private final long[] lastAccess;
+        private final int sets;
+        private final int ways;
+        private final FrequencySketch sketch;
+        private long clock;
+        private int size;
+
+        Segment(int sets, int ways, boolean admissionFilter) {
+            this.sets = sets;
+            this.ways = ways;
+            this.keys = new long[sets * ways];
+            this.values = new double[sets * ways];
+            this.lastAccess = new long[sets * ways];
+            this.sketch = admissionFilter ? new FrequencySketch(sets * ways) : null;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        // Номер первой ячейки набора: старшие биты хэша, младшие уже выбрали сегмент
+        int setOf(long hash) {
+            return (int) (((hash >>> 32) * sets) >>> 32) * ways;
+        }
+
+        int find(int set, long bits) {
+            for (int slot = set; slot < set + ways; slot++) {
+                if (keys[slot] == bits) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void recordAccess(long hash) {
+            if (sketch != null) {
+                sketch.increment(hash);
+            }
+        }
+
+        void put(int set, long bits, long hash, double value) {
+            int victim = set;
+            for (int slot = set; slot < set + ways; slot++) {
+                if (keys[slot] == bits) {
+                    return;
+                }
+                if (keys[slot] == EMPTY) {
+                    store(slot, bits, value);
+                    size++;
+                    return;
+                }
+                if (lastAccess[slot] < lastAccess[victim]) {
+                    victim = slot;
+                }
+            }
+
+            if (sketch != null && sketch.frequency(hash) <= sketch.frequency(mix(keys[victim]))) {
+                rejections.increment();
+                return;
+            }
+            store(victim, bits, value);
+            evictions.increment();
+        }
+
+        private void store(int slot, long bits, double value) {
+            keys[slot] = bits;
+            values[slot] = value;
+            lastAccess[slot] = ++clock;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            if (sketch != null) {
+                sketch.clear();
+            }
+        }
+    }
+
+    // Оценка частоты обращений: count-min sketch из 4-битных счётчиков, по 16 в одном long.
+    // Каждые sampleSize увеличений все счётчики делятся пополам, так что старая популярность забывается
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            table = new long[Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1];
+            sampleSize = 10 * Math.max(capacity, 8);
+        }
+
+        int frequency(long hash) {
+            int frequency = 15;
+            for (long seed : SEEDS) {
+                long h = (hash + seed) * seed;
+                frequency = Math.min(frequency, (int) (table[indexOf(h)] >>> offsetOf(h)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(long hash) {
+            boolean added = false;
+            for (long seed : SEEDS) {
+                long h = (hash + seed) * seed;
+                int index = indexOf(h);
+                int offset = offsetOf(h);
+                if (((table[index] >>> offset) & 15) != 15) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions = 0;
+            }
+        }
+
+        // Берутся старшие биты произведения: младшие биты хэша у всех ключей сегмента одинаковы
+        private int indexOf(long h) {
+            return (int) (h >>> 32) & (table.length - 1);
+        }
+
+        private static int offsetOf(long h) {
+            return ((int) (h >>> 28) & 15) << 2;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0);
+            additions = 0;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package functions.cache;
+
+public enum EvictionPolicy {
+    // Вытесняется давно не использованный аргумент
+    LRU,
+    // То же вытеснение, но новый аргумент попадает в кэш, только если по оценке частоты
+    // он встречался чаще вытесняемого: разовые обращения не вымывают популярные значения
+    TINY_LFU
+}
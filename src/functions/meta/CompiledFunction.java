@@ -0,0 +1,44 @@
+package functions.meta;
+
+import functions.Function;
+
+import java.lang.invoke.MethodHandle;
+
+// Результат FunctionCompiler.compile: вычисляет то же, что исходная функция, через один MethodHandle
+public final class CompiledFunction implements Function {
+    private final Function source;
+    private final MethodHandle evaluator;
+    private final boolean fixedDomain;
+    private final double leftDomainBorder;
+    private final double rightDomainBorder;
+
+    CompiledFunction(Function source, MethodHandle evaluator, boolean fixedDomain) {
+        this.source = source;
+        this.evaluator = evaluator;
+        this.fixedDomain = fixedDomain;
+        this.leftDomainBorder = source.getLeftDomainBorder();
+        this.rightDomainBorder = source.getRightDomainBorder();
+    }
+
+    public double getLeftDomainBorder() {
+        return fixedDomain ? leftDomainBorder : source.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return fixedDomain ? rightDomainBorder : source.getRightDomainBorder();
+    }
+
+    public double getFunctionValue(double x) {
+        try {
+            return (double) evaluator.invokeExact(x);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Function getSource() {
+        return source;
+    }
+}
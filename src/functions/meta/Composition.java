@@ -26,4 +26,27 @@ public class Composition implements Function {
         }
         return f2.getFunctionValue(innerValue);
     }
-}
\ No newline at end of file
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double[] innerValues = new double[xs.length];
+        f1.getFunctionValues(xs, innerValues);
+        f2.getFunctionValues(innerValues, out);
+        for (int i = 0; i < xs.length; i++) {
+            if (Double.isNaN(innerValues[i])) {
+                out[i] = Double.NaN;
+            }
+        }
+    }
+
+    public Function getFirstFunction() {
+        return f1;
+    }
+
+    public Function getSecondFunction() {
+        return f2;
+    }
+}
@@ -0,0 +1,228 @@
+package functions.meta;
+
+import functions.FrozenTabulatedFunction;
+import functions.Function;
+import functions.basic.Cos;
+import functions.basic.Exp;
+import functions.basic.Log;
+import functions.basic.Sin;
+import functions.basic.Tan;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// Превращает дерево мета-функций в один MethodHandle вида (double)double. После разогрева JIT
+// специализирует его целиком, без интерфейсных вызовов по уровням дерева.
+// Семантика та же, что у исходных классов: проверки области определения и NaN сохраняются,
+// но области поддеревьев из одних базовых функций вычисляются один раз при компиляции,
+// а проверки, которые не могут сработать, опускаются. Табулированные и прочие функции
+// остаются вызовами getFunctionValue, и их области определения проверяются при каждом вычислении;
+// исключение - замороженные таблицы, чья область определения не меняется
+public final class FunctionCompiler {
+    private static final MethodType UNARY = MethodType.methodType(double.class, double.class);
+    private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+
+    private static final MethodHandle SIN;
+    private static final MethodHandle COS;
+    private static final MethodHandle TAN;
+    private static final MethodHandle EXP;
+    private static final MethodHandle LOG;
+    private static final MethodHandle ADD;
+    private static final MethodHandle MULTIPLY;
+    private static final MethodHandle POWER;
+    private static final MethodHandle GUARDED_POWER;
+    private static final MethodHandle IS_NAN;
+    private static final MethodHandle NAN;
+    private static final MethodHandle OUTSIDE;
+    private static final MethodHandle OUTSIDE_DOMAIN;
+    private static final MethodHandle FUNCTION_VALUE;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            SIN = lookup.findStatic(Math.class, "sin", UNARY);
+            COS = lookup.findStatic(Math.class, "cos", UNARY);
+            TAN = lookup.findStatic(Math.class, "tan", UNARY);
+            EXP = lookup.findStatic(Math.class, "exp", UNARY);
+            LOG = lookup.findStatic(FunctionCompiler.class, "log", BINARY);
+            ADD = lookup.findStatic(FunctionCompiler.class, "add", BINARY);
+            MULTIPLY = lookup.findStatic(FunctionCompiler.class, "multiply", BINARY);
+            POWER = lookup.findStatic(Power.class, "raise", BINARY);
+            GUARDED_POWER = lookup.findStatic(FunctionCompiler.class, "power", BINARY);
+            IS_NAN = lookup.findStatic(Double.class, "isNaN", MethodType.methodType(boolean.class, double.class));
+            NAN = MethodHandles.dropArguments(MethodHandles.constant(double.class, Double.NaN), 0, double.class);
+            OUTSIDE = lookup.findStatic(FunctionCompiler.class, "outside",
+                    MethodType.methodType(boolean.class, double.class, double.class, double.class));
+            OUTSIDE_DOMAIN = lookup.findStatic(FunctionCompiler.class, "outside",
+                    MethodType.methodType(boolean.class, Function.class, double.class));
+            FUNCTION_VALUE = lookup.findVirtual(Function.class, "getFunctionValue", UNARY);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FunctionCompiler() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    public static CompiledFunction compile(Function function) {
+        if (function instanceof CompiledFunction) {
+            return (CompiledFunction) function;
+        }
+
+        Node node = compileNode(function);
+        return new CompiledFunction(function, node.handle, node.fixedDomain);
+    }
+
+    // Скомпилированное поддерево: fixedDomain - область определения не может измениться,
+    // preservesNaN - на NaN функция гарантированно возвращает NaN
+    private static final class Node {
+        final MethodHandle handle;
+        final boolean fixedDomain;
+        final boolean preservesNaN;
+
+        Node(MethodHandle handle, boolean fixedDomain, boolean preservesNaN) {
+            this.handle = handle;
+            this.fixedDomain = fixedDomain;
+            this.preservesNaN = preservesNaN;
+        }
+    }
+
+    // Классы сравниваются точно: у наследника может быть переопределено вычисление
+    private static Node compileNode(Function function) {
+        Class<?> type = function.getClass();
+
+        if (type == Sin.class) {
+            return new Node(SIN, true, true);
+        }
+        if (type == Cos.class) {
+            return new Node(COS, true, true);
+        }
+        if (type == Tan.class) {
+            return new Node(TAN, true, true);
+        }
+        if (type == Exp.class) {
+            return new Node(EXP, true, true);
+        }
+        if (type == Log.class) {
+            return new Node(MethodHandles.insertArguments(LOG, 1, Math.log(((Log) function).getBase())), true, true);
+        }
+        if (type == CompiledFunction.class) {
+            return compileNode(((CompiledFunction) function).getSource());
+        }
+        if (type == Shift.class) {
+            return compileShift((Shift) function);
+        }
+        if (type == Scale.class) {
+            return compileScale((Scale) function);
+        }
+        if (type == Power.class) {
+            return compilePower((Power) function);
+        }
+        if (type == Sum.class) {
+            Sum sum = (Sum) function;
+            return compileBinary(sum, ADD, sum.getFirstFunction(), sum.getSecondFunction());
+        }
+        if (type == Mult.class) {
+            Mult mult = (Mult) function;
+            return compileBinary(mult, MULTIPLY, mult.getFirstFunction(), mult.getSecondFunction());
+        }
+        if (type == Composition.class) {
+            return compileComposition((Composition) function);
+        }
+
+        if (type == FrozenTabulatedFunction.class) {
+            return new Node(FUNCTION_VALUE.bindTo(function), true, false);
+        }
+
+        return new Node(FUNCTION_VALUE.bindTo(function), false, false);
+    }
+
+    private static Node compileShift(Shift shift) {
+        Function inner = shift.getFunction();
+        Node node = compileNode(inner);
+
+        MethodHandle body = MethodHandles.filterReturnValue(node.handle, MethodHandles.insertArguments(ADD, 1, shift.getShiftY()));
+        body = guardDomain(body, inner, node.fixedDomain);
+        MethodHandle handle = MethodHandles.filterArguments(body, 0, MethodHandles.insertArguments(ADD, 1, shift.getShiftX()));
+        return new Node(handle, node.fixedDomain, node.preservesNaN);
+    }
+
+    private static Node compileScale(Scale scale) {
+        Function inner = scale.getFunction();
+        Node node = compileNode(inner);
+
+        MethodHandle body = MethodHandles.filterReturnValue(node.handle, MethodHandles.insertArguments(MULTIPLY, 1, scale.getScaleY()));
+        body = guardDomain(body, inner, node.fixedDomain);
+        MethodHandle handle = MethodHandles.filterArguments(body, 0, MethodHandles.insertArguments(MULTIPLY, 1, scale.getScaleX()));
+        return new Node(handle, node.fixedDomain, node.preservesNaN);
+    }
+
+    // Power.raise(NaN, p) - это NaN при любом p, кроме 0, так что проверка нужна только для нулевой степени
+    private static Node compilePower(Power power) {
+        Node node = compileNode(power.getFunction());
+        MethodHandle pow = power.getPower() == 0 ? GUARDED_POWER : POWER;
+        MethodHandle handle = MethodHandles.filterReturnValue(node.handle, MethodHandles.insertArguments(pow, 1, power.getPower()));
+        return new Node(handle, node.fixedDomain, node.preservesNaN);
+    }
+
+    private static Node compileBinary(Function function, MethodHandle operation, Function first, Function second) {
+        Node firstNode = compileNode(first);
+        Node secondNode = compileNode(second);
+        boolean fixedDomain = firstNode.fixedDomain && secondNode.fixedDomain;
+
+        MethodHandle both = MethodHandles.filterArguments(operation, 0, firstNode.handle, secondNode.handle);
+        MethodHandle handle = guardDomain(MethodHandles.permuteArguments(both, UNARY, 0, 0), function, fixedDomain);
+        return new Node(handle, fixedDomain, firstNode.preservesNaN || secondNode.preservesNaN);
+    }
+
+    private static Node compileComposition(Composition composition) {
+        Node inner = compileNode(composition.getFirstFunction());
+        Node outer = compileNode(composition.getSecondFunction());
+
+        MethodHandle outerHandle = outer.preservesNaN ? outer.handle : MethodHandles.guardWithTest(IS_NAN, NAN, outer.handle);
+        return new Node(MethodHandles.filterReturnValue(inner.handle, outerHandle), inner.fixedDomain, inner.preservesNaN);
+    }
+
+    // Возвращает NaN, если аргумент вне области определения domain; для неизменной области
+    // границы подставляются константами, а для всей прямой проверка не нужна вовсе
+    private static MethodHandle guardDomain(MethodHandle target, Function domain, boolean fixedDomain) {
+        MethodHandle test;
+        if (fixedDomain) {
+            double left = domain.getLeftDomainBorder();
+            double right = domain.getRightDomainBorder();
+            if (left == Double.NEGATIVE_INFINITY && right == Double.POSITIVE_INFINITY) {
+                return target;
+            }
+            test = MethodHandles.insertArguments(OUTSIDE, 1, left, right);
+        } else {
+            test = OUTSIDE_DOMAIN.bindTo(domain);
+        }
+        return MethodHandles.guardWithTest(test, NAN, target);
+    }
+
+    private static double log(double x, double logBase) {
+        return x <= 0 ? Double.NaN : Math.log(x) / logBase;
+    }
+
+    private static double add(double a, double b) {
+        return a + b;
+    }
+
+    private static double multiply(double a, double b) {
+        return a * b;
+    }
+
+    private static double power(double value, double power) {
+        return Double.isNaN(value) ? Double.NaN : Math.pow(value, power);
+    }
+
+    private static boolean outside(double x, double left, double right) {
+        return x < left || x > right;
+    }
+
+    private static boolean outside(Function domain, double x) {
+        return x < domain.getLeftDomainBorder() || x > domain.getRightDomainBorder();
+    }
+}
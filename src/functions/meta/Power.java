@@ -24,6 +24,45 @@ public class Power implements Function {
         if (Double.isNaN(value)) {
             return Double.NaN;
         }
+        return raise(value, power);
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        f.getFunctionValues(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            if (!Double.isNaN(out[i])) {
+                out[i] = raise(out[i], power);
+            }
+        }
+    }
+
+    // Частые показатели без Math.pow: квадрат и -1 точны, корень совпадает с Math.pow(value, 0.5)
+    // вплоть до -0 и -бесконечности, куб отличается от Math.pow не больше чем на единицу последнего разряда
+    static double raise(double value, double power) {
+        if (power == 2) {
+            return value * value;
+        }
+        if (power == 3) {
+            return value * value * value;
+        }
+        if (power == 0.5) {
+            return value == Double.NEGATIVE_INFINITY ? Double.POSITIVE_INFINITY : Math.sqrt(value) + 0.0;
+        }
+        if (power == -1) {
+            return 1 / value;
+        }
         return Math.pow(value, power);
     }
+
+    public Function getFunction() {
+        return f;
+    }
+
+    public double getPower() {
+        return power;
+    }
 }
@@ -28,4 +28,38 @@ public class Scale implements Function {
         }
         return f.getFunctionValue(scaledX) * scaleY;
     }
-}
\ No newline at end of file
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = f.getLeftDomainBorder();
+        double rightX = f.getRightDomainBorder();
+        double[] scaledXs = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            scaledXs[i] = xs[i] * scaleX;
+        }
+
+        f.getFunctionValues(scaledXs, out);
+        for (int i = 0; i < xs.length; i++) {
+            if (scaledXs[i] < leftX || scaledXs[i] > rightX) {
+                out[i] = Double.NaN;
+            } else {
+                out[i] *= scaleY;
+            }
+        }
+    }
+
+    public Function getFunction() {
+        return f;
+    }
+
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    public double getScaleY() {
+        return scaleY;
+    }
+}
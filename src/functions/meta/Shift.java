@@ -28,4 +28,38 @@ public class Shift implements Function {
         }
         return f.getFunctionValue(shiftedX) + shiftY;
     }
-}
\ No newline at end of file
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = f.getLeftDomainBorder();
+        double rightX = f.getRightDomainBorder();
+        double[] shiftedXs = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            shiftedXs[i] = xs[i] + shiftX;
+        }
+
+        f.getFunctionValues(shiftedXs, out);
+        for (int i = 0; i < xs.length; i++) {
+            if (shiftedXs[i] < leftX || shiftedXs[i] > rightX) {
+                out[i] = Double.NaN;
+            } else {
+                out[i] += shiftY;
+            }
+        }
+    }
+
+    public Function getFunction() {
+        return f;
+    }
+
+    public double getShiftX() {
+        return shiftX;
+    }
+
+    public double getShiftY() {
+        return shiftY;
+    }
+}
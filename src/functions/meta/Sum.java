@@ -25,4 +25,33 @@ public class Sum implements Function {
         }
         return f1.getFunctionValue(x) + f2.getFunctionValue(x);
     }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Массив для результатов короче массива аргументов");
+        }
+
+        double leftX = getLeftDomainBorder();
+        double rightX = getRightDomainBorder();
+        double[] second = new double[xs.length];
+        f2.getFunctionValues(xs, second);
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] < leftX || xs[i] > rightX) {
+                second[i] = Double.NaN;
+            }
+        }
+
+        f1.getFunctionValues(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            out[i] += second[i];
+        }
+    }
+
+    public Function getFirstFunction() {
+        return f1;
+    }
+
+    public Function getSecondFunction() {
+        return f2;
+    }
 }
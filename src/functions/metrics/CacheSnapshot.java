@@ -0,0 +1,64 @@
+package functions.metrics;
+
+import functions.cache.CachedFunction;
+
+// Снимок статистики кэша. Счётчики попаданий и промахов ведёт сам CachedFunction,
+// реестр метрик только читает их, поэтому регистрация кэша ничего не стоит при вычислениях
+public final class CacheSnapshot {
+    private final String name;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+    private final int size;
+    private final int maximumSize;
+
+    CacheSnapshot(String name, CachedFunction cache) {
+        this.name = name;
+        this.hits = cache.getHitCount();
+        this.misses = cache.getMissCount();
+        this.evictions = cache.getEvictionCount();
+        this.rejections = cache.getRejectionCount();
+        this.size = cache.size();
+        this.maximumSize = cache.getMaximumSize();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %12d %12d %9.1f%% %10d %6d/%d", name, hits, misses, getHitRate() * 100,
+                evictions, size, maximumSize);
+    }
+}
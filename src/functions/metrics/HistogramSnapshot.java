@@ -0,0 +1,86 @@
+package functions.metrics;
+
+import java.util.Arrays;
+
+// Снимок одной метрики. calls - число всех событий, count и buckets - только попавших в выборку
+// (для задержек это каждый samplingPeriod-й вызов, для остальных метрик count равен calls).
+// Перцентили приблизительные: возвращается верхняя граница корзины, в которую попал перцентиль
+public final class HistogramSnapshot {
+    private final String name;
+    private final long calls;
+    private final long count;
+    private final long sum;
+    private final long[] buckets;
+
+    HistogramSnapshot(String name, long calls, Log2Histogram histogram) {
+        this.name = name;
+        this.calls = calls;
+        this.buckets = histogram.getBuckets();
+        this.sum = histogram.getSum();
+        long total = 0;
+        for (long bucket : buckets) {
+            total += bucket;
+        }
+        this.count = total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long[] getBuckets() {
+        return Arrays.copyOf(buckets, buckets.length);
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : (double) sum / count;
+    }
+
+    public long getPercentile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Квантиль должен быть в отрезке [0, 1]");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public long getP50() {
+        return getPercentile(0.5);
+    }
+
+    public long getP90() {
+        return getPercentile(0.9);
+    }
+
+    public long getP99() {
+        return getPercentile(0.99);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s %12d %12.1f %10d %10d %10d", name, calls, getMean(), getP50(), getP90(), getP99());
+    }
+}
@@ -0,0 +1,58 @@
+package functions.metrics;
+
+import functions.Function;
+
+// Обёртка, считающая вызовы функции и замеряющая их время. Пакетное вычисление засчитывается
+// как xs.length вызовов, а его время попадает в отдельную метрику с суффиксом "[пакет]"
+public class InstrumentedFunction implements Function {
+    private final Function function;
+    private final Timer timer;
+    private final Timer batchTimer;
+
+    InstrumentedFunction(Timer timer, Function function) {
+        this.function = function;
+        this.timer = timer;
+        this.batchTimer = Metrics.timer(timer.getName() + "[пакет]", 1);
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    public double getFunctionValue(double x) {
+        if (!Metrics.isEnabled()) {
+            return function.getFunctionValue(x);
+        }
+        long start = timer.start();
+        double value = function.getFunctionValue(x);
+        timer.stop(start);
+        return value;
+    }
+
+    public void getFunctionValues(double[] xs, double[] out) {
+        if (!Metrics.isEnabled()) {
+            function.getFunctionValues(xs, out);
+            return;
+        }
+        long start = batchTimer.start(xs.length);
+        function.getFunctionValues(xs, out);
+        batchTimer.stop(start);
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public String getName() {
+        return timer.getName();
+    }
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package functions.metrics;
+
+import functions.FunctionPoint;
+import functions.InappropriateFunctionPointException;
+import functions.TabulatedFunction;
+
+import java.util.Iterator;
+
+// Обёртка над табулированной функцией: вычисления замеряются как в InstrumentedFunction,
+// остальные методы передаются исходной функции без изменений. Копия пишет в те же метрики
+public class InstrumentedTabulatedFunction extends InstrumentedFunction implements TabulatedFunction {
+    private final TabulatedFunction function;
+    private final Timer timer;
+
+    InstrumentedTabulatedFunction(Timer timer, TabulatedFunction function) {
+        super(timer, function);
+        this.function = function;
+        this.timer = timer;
+    }
+
+    @Override
+    public TabulatedFunction getFunction() {
+        return function;
+    }
+
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    public FunctionPoint getPoint(int index) {
+        return function.getPoint(index);
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws InappropriateFunctionPointException {
+        function.setPoint(index, point);
+    }
+
+    public double getPointX(int index) {
+        return function.getPointX(index);
+    }
+
+    public void setPointX(int index, double x) throws InappropriateFunctionPointException {
+        function.setPointX(index, x);
+    }
+
+    public double getPointY(int index) {
+        return function.getPointY(index);
+    }
+
+    public void setPointY(int index, double y) {
+        function.setPointY(index, y);
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        function.addPoint(point);
+    }
+
+    public void deletePoint(int index) {
+        function.deletePoint(index);
+    }
+
+    @Override
+    public Object clone() {
+        return new InstrumentedTabulatedFunction(timer, (TabulatedFunction) function.clone());
+    }
+
+    @Override
+    public Iterator<FunctionPoint> iterator() {
+        return function.iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof InstrumentedTabulatedFunction) {
+            return function.equals(((InstrumentedTabulatedFunction) o).function);
+        }
+        return function.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return function.hashCode();
+    }
+}
@@ -0,0 +1,50 @@
+package functions.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма неотрицательных значений с корзинами по степеням двойки: корзина 0 - значение 0,
+// корзина k - значения от 2^(k-1) до 2^k - 1. Все счётчики - LongAdder, поэтому запись
+// из многих потоков не превращается в борьбу за одну ячейку памяти
+public final class Log2Histogram {
+    static final int BUCKETS = 65;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public Log2Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        buckets[64 - Long.numberOfLeadingZeros(Math.max(value, 0))].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    long[] getBuckets() {
+        long[] values = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            values[i] = buckets[i].sum();
+        }
+        return values;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+    }
+}
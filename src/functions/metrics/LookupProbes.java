@@ -0,0 +1,26 @@
+package functions.metrics;
+
+// Счётчики длины поиска интервала в табулированных функциях. Флаг ENABLED - константа,
+// задаваемая при запуске свойством -Dfunctions.metrics.probes=true: при false JIT выбрасывает
+// и проверку, и подсчёт проб, так что в обычном режиме поиск не замедляется ни на такт.
+// Проба - одно сравнение с узлом сетки при поиске в массиве или один пройденный узел в списке
+// (в списке с пропусками ещё по одной на уровень); попадание по формуле равномерной сетки - одна проба
+public final class LookupProbes {
+    public static final boolean ENABLED = Boolean.getBoolean("functions.metrics.probes");
+
+    private LookupProbes() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    // Гистограмма для класса реализации; вызывается один раз при загрузке класса
+    public static Log2Histogram forClass(Class<?> type) {
+        return ENABLED ? Metrics.probe("поиск " + type.getSimpleName()) : null;
+    }
+
+    // Учитывает только при включённом сборе, чтобы выключенный Metrics останавливал и пробы
+    public static void record(Log2Histogram histogram, long probes) {
+        if (Metrics.isEnabled()) {
+            histogram.record(probes);
+        }
+    }
+}
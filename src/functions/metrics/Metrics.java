@@ -0,0 +1,214 @@
+package functions.metrics;
+
+import functions.Function;
+import functions.TabulatedFunction;
+import functions.cache.CachedFunction;
+import functions.meta.Composition;
+import functions.meta.Mult;
+import functions.meta.Power;
+import functions.meta.Scale;
+import functions.meta.Shift;
+import functions.meta.Sum;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Реестр метрик вычислений: счётчики вызовов и гистограммы задержек обёрнутых функций и интегрирования,
+// длины поиска интервала в табулированных функциях, доля попаданий зарегистрированных кэшей.
+// Сбор включается setEnabled(true) или свойством -Dfunctions.metrics=true; выключенная обёртка
+// обходится одним чтением volatile-флага. Метрики с одинаковым именем общие, так что несколько
+// обёрток под одним именем складываются в одну строку отчёта
+public final class Metrics {
+    // Задержки обёрнутых функций замеряются у каждого 16-го вызова в среднем, интегрирование - всегда
+    public static final int LATENCY_SAMPLING = 16;
+    public static final String OBJECT_NAME = "functions:type=Metrics";
+
+    private static volatile boolean enabled = Boolean.getBoolean("functions.metrics");
+
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, Log2Histogram> probes = new ConcurrentSkipListMap<>();
+    private static final Map<String, CachedFunction> caches = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+        throw new UnsupportedOperationException("Нельзя создавать объекты служебного класса");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static Timer timer(String name) {
+        return timer(name, LATENCY_SAMPLING);
+    }
+
+    public static Timer timer(String name, int samplingPeriod) {
+        return timers.computeIfAbsent(name, key -> new Timer(key, samplingPeriod));
+    }
+
+    // Гистограмма длин поиска; записывается только при -Dfunctions.metrics.probes=true, см. LookupProbes
+    public static Log2Histogram probe(String name) {
+        return probes.computeIfAbsent(name, key -> new Log2Histogram());
+    }
+
+    public static InstrumentedFunction instrument(String name, Function function) {
+        return new InstrumentedFunction(timer(name), function);
+    }
+
+    public static InstrumentedTabulatedFunction instrument(String name, TabulatedFunction function) {
+        return new InstrumentedTabulatedFunction(timer(name), function);
+    }
+
+    // Пересобирает дерево мета-функций, оборачивая каждый узел, чтобы видеть, сколько времени уходит
+    // на каждое поддерево. Имена узлов - путь от корня: "f", "f/1:Sum", "f/1:Sum/2:Sin".
+    // Кэши внутри дерева не пересоздаются, а регистрируются под своим путём
+    public static Function instrumentTree(String name, Function function) {
+        if (function instanceof CachedFunction) {
+            register(name, (CachedFunction) function);
+            return instrument(name, function);
+        }
+
+        Function rebuilt;
+        Class<?> type = function.getClass();
+        if (type == Sum.class) {
+            Sum sum = (Sum) function;
+            rebuilt = new Sum(instrumentChild(name, "1:", sum.getFirstFunction()),
+                    instrumentChild(name, "2:", sum.getSecondFunction()));
+        } else if (type == Mult.class) {
+            Mult mult = (Mult) function;
+            rebuilt = new Mult(instrumentChild(name, "1:", mult.getFirstFunction()),
+                    instrumentChild(name, "2:", mult.getSecondFunction()));
+        } else if (type == Composition.class) {
+            Composition composition = (Composition) function;
+            rebuilt = new Composition(instrumentChild(name, "1:", composition.getFirstFunction()),
+                    instrumentChild(name, "2:", composition.getSecondFunction()));
+        } else if (type == Shift.class) {
+            Shift shift = (Shift) function;
+            rebuilt = new Shift(instrumentChild(name, "", shift.getFunction()), shift.getShiftX(), shift.getShiftY());
+        } else if (type == Scale.class) {
+            Scale scale = (Scale) function;
+            rebuilt = new Scale(instrumentChild(name, "", scale.getFunction()), scale.getScaleX(), scale.getScaleY());
+        } else if (type == Power.class) {
+            Power power = (Power) function;
+            rebuilt = new Power(instrumentChild(name, "", power.getFunction()), power.getPower());
+        } else {
+            rebuilt = function;
+        }
+        return instrument(name, rebuilt);
+    }
+
+    private static Function instrumentChild(String parent, String prefix, Function child) {
+        return instrumentTree(parent + "/" + prefix + child.getClass().getSimpleName(), child);
+    }
+
+    public static void register(String name, CachedFunction cache) {
+        caches.put(name, cache);
+    }
+
+    public static void unregister(String name) {
+        timers.remove(name);
+        probes.remove(name);
+        caches.remove(name);
+    }
+
+    // Обнуляет все счётчики, включая статистику зарегистрированных кэшей
+    public static void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        for (Log2Histogram probe : probes.values()) {
+            probe.reset();
+        }
+        for (CachedFunction cache : caches.values()) {
+            cache.resetStatistics();
+        }
+    }
+
+    public static MetricsSnapshot snapshot() {
+        List<HistogramSnapshot> timerSnapshots = new ArrayList<>();
+        for (Timer timer : timers.values()) {
+            timerSnapshots.add(timer.snapshot());
+        }
+        List<HistogramSnapshot> probeSnapshots = new ArrayList<>();
+        for (Map.Entry<String, Log2Histogram> entry : probes.entrySet()) {
+            probeSnapshots.add(new HistogramSnapshot(entry.getKey(), entry.getValue().getCount(), entry.getValue()));
+        }
+        List<CacheSnapshot> cacheSnapshots = new ArrayList<>();
+        for (Map.Entry<String, CachedFunction> entry : caches.entrySet()) {
+            cacheSnapshots.add(new CacheSnapshot(entry.getKey(), entry.getValue()));
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), timerSnapshots, probeSnapshots, cacheSnapshots);
+    }
+
+    // Регистрирует реестр в платформенном MBeanServer под именем OBJECT_NAME; повторный вызов ничего не делает
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            synchronized (Metrics.class) {
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(new MetricsBean(), objectName);
+                }
+            }
+        } catch (JMException e) {
+            throw new RuntimeException("Ошибка регистрации MBean метрик", e);
+        }
+    }
+
+    public static void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            synchronized (Metrics.class) {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            }
+        } catch (JMException e) {
+            throw new RuntimeException("Ошибка снятия с регистрации MBean метрик", e);
+        }
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        public boolean isProbesEnabled() {
+            return LookupProbes.ENABLED;
+        }
+
+        public List<HistogramSnapshot> getTimers() {
+            return snapshot().getTimers();
+        }
+
+        public List<HistogramSnapshot> getProbes() {
+            return snapshot().getProbes();
+        }
+
+        public List<CacheSnapshot> getCaches() {
+            return snapshot().getCaches();
+        }
+
+        public String getReport() {
+            return snapshot().toString();
+        }
+
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package functions.metrics;
+
+import java.util.List;
+
+// Управляющий интерфейс реестра метрик для JMX (jconsole, VisualVM): снимки отдаются как CompositeData.
+// Обратно в объекты снимков они не собираются, поэтому прокси JMX.newMXBeanProxy для этого интерфейса
+// не строится; удалённым клиентам достаточно getAttribute и getReport
+public interface MetricsMXBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    boolean isProbesEnabled();
+    List<HistogramSnapshot> getTimers();
+    List<HistogramSnapshot> getProbes();
+    List<CacheSnapshot> getCaches();
+    String getReport();
+    void reset();
+}
@@ -0,0 +1,95 @@
+package functions.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+// Снимки всех зарегистрированных метрик на момент timestamp. Отдельные счётчики
+// читаются без блокировок, поэтому при параллельных вызовах снимок может отставать на несколько событий
+public final class MetricsSnapshot {
+    private final long timestamp;
+    private final List<HistogramSnapshot> timers;
+    private final List<HistogramSnapshot> probes;
+    private final List<CacheSnapshot> caches;
+
+    MetricsSnapshot(long timestamp, List<HistogramSnapshot> timers, List<HistogramSnapshot> probes,
+                    List<CacheSnapshot> caches) {
+        this.timestamp = timestamp;
+        this.timers = Collections.unmodifiableList(timers);
+        this.probes = Collections.unmodifiableList(probes);
+        this.caches = Collections.unmodifiableList(caches);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Вызовы функций и интегрирования, задержки в наносекундах
+    public List<HistogramSnapshot> getTimers() {
+        return timers;
+    }
+
+    // Длины поиска интервала в табулированных функциях: число сравнений или пройденных узлов
+    public List<HistogramSnapshot> getProbes() {
+        return probes;
+    }
+
+    public List<CacheSnapshot> getCaches() {
+        return caches;
+    }
+
+    public HistogramSnapshot getTimer(String name) {
+        for (HistogramSnapshot timer : timers) {
+            if (timer.getName().equals(name)) {
+                return timer;
+            }
+        }
+        return null;
+    }
+
+    public HistogramSnapshot getProbe(String name) {
+        for (HistogramSnapshot probe : probes) {
+            if (probe.getName().equals(name)) {
+                return probe;
+            }
+        }
+        return null;
+    }
+
+    public CacheSnapshot getCache(String name) {
+        for (CacheSnapshot cache : caches) {
+            if (cache.getName().equals(name)) {
+                return cache;
+            }
+        }
+        return null;
+    }
+
+    // Текстовый отчёт; метрики без единого вызова в него не попадают
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (timers.stream().anyMatch(timer -> timer.getCalls() > 0)) {
+            sb.append(String.format("%-40s %12s %12s %10s %10s %10s%n", "вызовы", "число", "среднее нс", "p50", "p90", "p99"));
+            for (HistogramSnapshot timer : timers) {
+                if (timer.getCalls() > 0) {
+                    sb.append(timer).append(System.lineSeparator());
+                }
+            }
+        }
+        if (probes.stream().anyMatch(probe -> probe.getCalls() > 0)) {
+            sb.append(String.format("%-40s %12s %12s %10s %10s %10s%n", "поиск интервала", "поисков", "проб", "p50", "p90", "p99"));
+            for (HistogramSnapshot probe : probes) {
+                if (probe.getCalls() > 0) {
+                    sb.append(probe).append(System.lineSeparator());
+                }
+            }
+        }
+        if (!caches.isEmpty()) {
+            sb.append(String.format("%-40s %12s %12s %10s %10s %6s%n", "кэш", "попадания", "промахи", "доля", "вытеснено", "размер"));
+            for (CacheSnapshot cache : caches) {
+                sb.append(cache).append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package functions.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчик вызовов с гистограммой задержек в наносекундах. Время замеряется у каждого
+// samplingPeriod-го вызова в среднем: два вызова System.nanoTime дороже поиска в таблице,
+// поэтому быстрые функции замеряются выборочно, а счётчик вызовов ведётся всегда
+public final class Timer {
+    private final String name;
+    private final int samplingMask;
+    private final LongAdder calls = new LongAdder();
+    private final Log2Histogram latency = new Log2Histogram();
+
+    Timer(String name, int samplingPeriod) {
+        if (samplingPeriod < 1 || Integer.bitCount(samplingPeriod) != 1) {
+            throw new IllegalArgumentException("Период выборки должен быть степенью двойки");
+        }
+        this.name = name;
+        this.samplingMask = samplingPeriod - 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Засчитывает count вызовов и решает, замерять ли их время: 0 - не замерять, иначе момент начала
+    public long start(int count) {
+        if (!Metrics.isEnabled()) {
+            return 0;
+        }
+        calls.add(count);
+        if (samplingMask != 0 && (ThreadLocalRandom.current().nextInt() & samplingMask) != 0) {
+            return 0;
+        }
+        return System.nanoTime() | 1;
+    }
+
+    public long start() {
+        return start(1);
+    }
+
+    public void stop(long start) {
+        if (start != 0) {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public HistogramSnapshot snapshot() {
+        return new HistogramSnapshot(name, calls.sum(), latency);
+    }
+
+    public void reset() {
+        calls.reset();
+        latency.reset();
+    }
+}
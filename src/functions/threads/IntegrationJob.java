@@ -0,0 +1,33 @@
+package functions.threads;
+
+import functions.Function;
+
+public final class IntegrationJob {
+    private final Function function;
+    private final double left;
+    private final double right;
+    private final double step;
+
+    public IntegrationJob(Function function, double left, double right, double step) {
+        this.function = function;
+        this.left = left;
+        this.right = right;
+        this.step = step;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public double getLeft() {
+        return left;
+    }
+
+    public double getRight() {
+        return right;
+    }
+
+    public double getStep() {
+        return step;
+    }
+}
@@ -0,0 +1,90 @@
+package functions.threads;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Генераторы и интеграторы обмениваются неизменяемыми заданиями через ограниченную очередь:
+// заполненная очередь притормаживает генераторы, а завершение интеграторов сигнализируется «ядовитыми» заданиями
+public class IntegrationPipeline {
+    static final IntegrationJob POISON_PILL = new IntegrationJob(null, 0, 0, 0);
+
+    private final int generatorsCount;
+    private final int integratorsCount;
+    private final int queueCapacity;
+    private final int tasksCount;
+    private final boolean verbose;
+    private volatile long failedCount;
+
+    public IntegrationPipeline(int generatorsCount, int integratorsCount, int queueCapacity, int tasksCount, boolean verbose) {
+        if (generatorsCount < 1 || integratorsCount < 1) {
+            throw new IllegalArgumentException("Нужен хотя бы один генератор и один интегратор");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Ёмкость очереди должна быть положительной");
+        }
+        if (tasksCount < 0) {
+            throw new IllegalArgumentException("Количество заданий не может быть отрицательным");
+        }
+
+        this.generatorsCount = generatorsCount;
+        this.integratorsCount = integratorsCount;
+        this.queueCapacity = queueCapacity;
+        this.tasksCount = tasksCount;
+        this.verbose = verbose;
+    }
+
+    // Возвращает количество обработанных заданий
+    public long run() throws InterruptedException {
+        BlockingQueue<IntegrationJob> queue = new ArrayBlockingQueue<>(queueCapacity);
+        LongAdder completedCount = new LongAdder();
+        LongAdder failedCount = new LongAdder();
+
+        Thread[] generators = new Thread[generatorsCount];
+        for (int i = 0; i < generatorsCount; i++) {
+            int share = tasksCount / generatorsCount + (i < tasksCount % generatorsCount ? 1 : 0);
+            generators[i] = new Thread(new JobGenerator(queue, share, verbose), "generator-" + i);
+        }
+
+        Thread[] integrators = new Thread[integratorsCount];
+        for (int i = 0; i < integratorsCount; i++) {
+            integrators[i] = new Thread(new JobIntegrator(queue, completedCount, failedCount, verbose), "integrator-" + i);
+        }
+
+        for (Thread integrator : integrators) {
+            integrator.start();
+        }
+        for (Thread generator : generators) {
+            generator.start();
+        }
+
+        try {
+            for (Thread generator : generators) {
+                generator.join();
+            }
+            for (int i = 0; i < integratorsCount; i++) {
+                queue.put(POISON_PILL);
+            }
+            for (Thread integrator : integrators) {
+                integrator.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread generator : generators) {
+                generator.interrupt();
+            }
+            for (Thread integrator : integrators) {
+                integrator.interrupt();
+            }
+            throw e;
+        } finally {
+            this.failedCount = failedCount.sum();
+        }
+
+        return completedCount.sum();
+    }
+
+    // Сколько заданий последнего запуска завершились исключением; они входят и в результат run()
+    public long getFailedCount() {
+        return failedCount;
+    }
+}
@@ -0,0 +1,56 @@
+package functions.threads;
+
+import functions.Function;
+import functions.Functions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Каждое задание выполняется в отдельном виртуальном потоке; число одновременно считаемых интегралов
+// ограничено, чтобы десятки тысяч заданий не конкурировали за процессор одновременно
+public class IntegrationService implements AutoCloseable {
+    private final ExecutorService executor;
+    private final java.util.concurrent.Semaphore permits;
+
+    public IntegrationService(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Ограничение параллельности должно быть положительным");
+        }
+
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("integration-", 0).factory());
+        this.permits = new java.util.concurrent.Semaphore(maxConcurrency);
+    }
+
+    public IntegrationService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CompletableFuture<Double> submit(Function function, double left, double right, double step) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+
+            try {
+                return Functions.integrate(function, left, right, step);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Double> submit(IntegrationJob job) {
+        return submit(job.getFunction(), job.getLeft(), job.getRight(), job.getStep());
+    }
+
+    // Перестает принимать задания и дожидается завершения уже принятых
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,41 @@
+package functions.threads;
+
+import functions.basic.Log;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class JobGenerator implements Runnable {
+    private final BlockingQueue<IntegrationJob> queue;
+    private final int tasksCount;
+    private final boolean verbose;
+
+    public JobGenerator(BlockingQueue<IntegrationJob> queue, int tasksCount, boolean verbose) {
+        this.queue = queue;
+        this.tasksCount = tasksCount;
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            for (int i = 0; i < tasksCount; i++) {
+                double base = 1 + random.nextDouble() * 9;
+                double left = random.nextDouble() * 100;
+                double right = 100 + random.nextDouble() * 100;
+                double step = random.nextDouble();
+
+                IntegrationJob job = new IntegrationJob(new Log(base), left, right, step);
+                if (verbose) {
+                    System.out.printf("Source %.2f %.2f %.2f%n", left, right, step);
+                }
+
+                queue.put(job);
+            }
+        } catch (InterruptedException e) {
+            System.out.println("JobGenerator: прерван");
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package functions.threads;
+
+import functions.Functions;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JobIntegrator implements Runnable {
+    private final BlockingQueue<IntegrationJob> queue;
+    private final LongAdder completedCount;
+    private final LongAdder failedCount;
+    private final boolean verbose;
+
+    // completedCount - все обработанные задания, failedCount - те из них, что завершились исключением
+    public JobIntegrator(BlockingQueue<IntegrationJob> queue, LongAdder completedCount, LongAdder failedCount, boolean verbose) {
+        this.queue = queue;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                IntegrationJob job = queue.take();
+                if (job == IntegrationPipeline.POISON_PILL) {
+                    break;
+                }
+
+                try {
+                    double result = Functions.integrate(job.getFunction(), job.getLeft(), job.getRight(), job.getStep());
+                    if (verbose) {
+                        System.out.printf("Result %.2f %.2f %.2f %.2f%n",
+                                job.getLeft(), job.getRight(), job.getStep(), result);
+                    }
+                } catch (RuntimeException e) {
+                    // Ошибка одного задания не должна останавливать интегратор: иначе генераторы
+                    // и ядовитые задания навсегда застрянут на заполненной очереди
+                    failedCount.increment();
+                    if (verbose) {
+                        System.out.printf("Error for %.2f %.2f %.2f: %s%n",
+                                job.getLeft(), job.getRight(), job.getStep(), e.getMessage());
+                    }
+                }
+                completedCount.increment();
+            }
+        } catch (InterruptedException e) {
+            System.out.println("JobIntegrator: прерван");
+            Thread.currentThread().interrupt();
+        }
+    }
+}